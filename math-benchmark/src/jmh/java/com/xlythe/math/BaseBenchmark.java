@@ -0,0 +1,49 @@
+package com.xlythe.math;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Converts and groups equations, as is done to every input and result outside of decimal.
+ */
+@State(Scope.Thread)
+public class BaseBenchmark {
+    private static final String DECIMAL = "12.375+7\u00d7(3\u221245.5)\u00f71000";
+    private static final String HEXADECIMAL = "C.6+7\u00d7(3\u22122D.8)\u00f73E8";
+    private static final String LARGE = "340282366920938463463374607431768211456\u00d7"
+            + "115792089237316195423570985008687907853269984665640564039457584007913129639936";
+
+    private BaseModule mBaseModule;
+
+    @Setup
+    public void setUp() {
+        mBaseModule = new Solver().getBaseModule();
+    }
+
+    @Benchmark
+    public String decimalToHexadecimal() throws SyntaxException {
+        return mBaseModule.changeBase(DECIMAL, Base.DECIMAL, Base.HEXADECIMAL);
+    }
+
+    @Benchmark
+    public String hexadecimalToDecimal() throws SyntaxException {
+        return mBaseModule.changeBase(HEXADECIMAL, Base.HEXADECIMAL, Base.DECIMAL);
+    }
+
+    @Benchmark
+    public String decimalToBinary() throws SyntaxException {
+        return mBaseModule.changeBase(DECIMAL, Base.DECIMAL, Base.BINARY);
+    }
+
+    @Benchmark
+    public String largeToHexadecimal() throws SyntaxException {
+        return mBaseModule.changeBase(LARGE, Base.DECIMAL, Base.HEXADECIMAL);
+    }
+
+    @Benchmark
+    public String groupSentence() {
+        return mBaseModule.groupSentence(LARGE, 10);
+    }
+}
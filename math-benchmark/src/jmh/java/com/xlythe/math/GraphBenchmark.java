@@ -0,0 +1,73 @@
+package com.xlythe.math;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Graphs an equation across a phone sized screen. Tasks run on the benchmark's thread, and
+ * curves are evaluated on the common pool.
+ */
+@State(Scope.Thread)
+public class GraphBenchmark {
+    @Param({
+            // Explicit
+            "sin(X)\u00d7X",
+            // Implicit
+            "X^2+Y^2=25"
+    })
+    public String equation;
+
+    // When false, every graph samples the curve from scratch. Otherwise, tiles from the previous
+    // graph are reused, as when panning.
+    @Param({"false", "true"})
+    public boolean cached;
+
+    private GraphModule mGraphModule;
+    private PointBuffer mResult;
+
+    private final GraphModule.OnGraphUpdatedListener mListener = new GraphModule.OnGraphUpdatedListener() {
+        @Override
+        public void onGraphUpdated(List<Point> result) {}
+
+        @Override
+        public void onGraphUpdated(PointBuffer result) {
+            mResult = result;
+        }
+    };
+
+    @Setup
+    public void setUp() {
+        mGraphModule = new Solver().getGraphModule();
+        mGraphModule.setDomain(-10, 10);
+        mGraphModule.setRange(-15, 15);
+        mGraphModule.setResolution(1080, 1620);
+
+        // Graph on this thread, so that each call measures a whole graph
+        Executor direct = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        };
+        mGraphModule.setExecutor(direct);
+        mGraphModule.setCallbackExecutor(direct);
+    }
+
+    @Benchmark
+    public PointBuffer graph() {
+        if (!cached) {
+            mGraphModule.clearCache();
+        }
+        mGraphModule.updateGraph(equation, mListener);
+
+        PointBuffer result = mResult;
+        mGraphModule.releaseBuffer(result);
+        return result;
+    }
+}
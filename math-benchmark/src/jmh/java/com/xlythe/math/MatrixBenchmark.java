@@ -0,0 +1,127 @@
+package com.xlythe.math;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * Evaluates matrix expressions, from parsing the matrices out of the text to printing the result.
+ */
+@State(Scope.Thread)
+public class MatrixBenchmark {
+    @Param({"2", "8", "32"})
+    public int size;
+
+    private Solver mSolver;
+    private String mProduct;
+    private String mSum;
+    private String mPower;
+    private String mInverse;
+    private String mQuotient;
+    private String mSymmetricQuotient;
+    private String mDeterminant;
+
+    @Setup
+    public void setUp() {
+        mSolver = new Solver();
+
+        // The same matrices every run, so that results can be compared
+        Random random = new Random(size);
+        String a = matrix(random, size);
+        String b = matrix(random, size);
+        mProduct = a + Constants.MUL + b;
+        mSum = a + "+2" + Constants.MUL + b;
+        mPower = a + "^5";
+        mInverse = a + "^" + Constants.MINUS + "1";
+        mQuotient = a + Constants.DIV + b;
+        mSymmetricQuotient = a + Constants.DIV + symmetricMatrix(random, size);
+        mDeterminant = "det(" + a + ")";
+    }
+
+    @Benchmark
+    public String product() throws SyntaxException {
+        return mSolver.getMatrixModule().evaluateMatrices(mProduct);
+    }
+
+    @Benchmark
+    public String sum() throws SyntaxException {
+        return mSolver.getMatrixModule().evaluateMatrices(mSum);
+    }
+
+    @Benchmark
+    public String power() throws SyntaxException {
+        return mSolver.getMatrixModule().evaluateMatrices(mPower);
+    }
+
+    @Benchmark
+    public String inverse() throws SyntaxException {
+        return mSolver.getMatrixModule().evaluateMatrices(mInverse);
+    }
+
+    @Benchmark
+    public String quotient() throws SyntaxException {
+        return mSolver.getMatrixModule().evaluateMatrices(mQuotient);
+    }
+
+    /**
+     * Divides by a symmetric positive-definite matrix, which large enough matrices solve with
+     * Cholesky instead of LU.
+     */
+    @Benchmark
+    public String symmetricQuotient() throws SyntaxException {
+        return mSolver.getMatrixModule().evaluateMatrices(mSymmetricQuotient);
+    }
+
+    @Benchmark
+    public String determinant() throws SyntaxException {
+        return mSolver.getMatrixModule().evaluateMatrices(mDeterminant);
+    }
+
+    /**
+     * Writes out a square matrix of small whole numbers, like [[1,2][3,4]]. The diagonal is
+     * larger than the rest of its row, so the matrix can always be inverted.
+     */
+    static String matrix(Random random, int size) {
+        StringBuilder text = new StringBuilder("[");
+        for (int row = 0; row < size; row++) {
+            text.append('[');
+            for (int column = 0; column < size; column++) {
+                if (column > 0) text.append(Constants.MATRIX_SEPARATOR);
+                int value = random.nextInt(19) - 9;
+                if (row == column) value = 10 * size;
+                text.append(value);
+            }
+            text.append(']');
+        }
+        return text.append(']').toString();
+    }
+
+    /**
+     * Like {@link #matrix(Random, int)}, but mirrored across the diagonal. With a positive
+     * diagonal that outweighs the rest of its row, it's also positive-definite.
+     */
+    static String symmetricMatrix(Random random, int size) {
+        int[][] values = new int[size][size];
+        for (int row = 0; row < size; row++) {
+            values[row][row] = 10 * size;
+            for (int column = 0; column < row; column++) {
+                values[row][column] = values[column][row] = random.nextInt(19) - 9;
+            }
+        }
+
+        StringBuilder text = new StringBuilder("[");
+        for (int[] row : values) {
+            text.append('[');
+            for (int column = 0; column < size; column++) {
+                if (column > 0) text.append(Constants.MATRIX_SEPARATOR);
+                text.append(row[column]);
+            }
+            text.append(']');
+        }
+        return text.append(']').toString();
+    }
+}
@@ -0,0 +1,79 @@
+package com.xlythe.math;
+
+import org.ejml.data.DMatrixRMaj;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * Multiplies, raises and divides large matrices on one thread and on several, to find the size
+ * where splitting the work starts to pay off. That size is a good choice for
+ * {@link MatrixModule#setConcurrencyThreshold(int)}.
+ * <p>
+ * The matrices are built directly instead of parsed, since parsing a large matrix takes longer
+ * than multiplying it.
+ */
+@State(Scope.Thread)
+public class MatrixConcurrencyBenchmark {
+    @Param({"32", "64", "128", "256", "512"})
+    public int size;
+
+    @Param({"true", "false"})
+    public boolean concurrent;
+
+    private MatrixModule mModule;
+    private DMatrixRMaj mA;
+    private DMatrixRMaj mB;
+    private DMatrixRMaj mSymmetric;
+
+    @Setup
+    public void setUp() {
+        mModule = new Solver().getMatrixModule();
+        mModule.setConcurrencyThreshold(concurrent ? 0 : Integer.MAX_VALUE);
+
+        // The same matrices every run, so that results can be compared
+        Random random = new Random(size);
+        mA = matrix(random, size);
+        mB = matrix(random, size);
+
+        // B B^T + n I is symmetric positive-definite, so it's divided with Cholesky
+        mSymmetric = new DMatrixRMaj(size, size);
+        for (int row = 0; row < size; row++) {
+            for (int column = 0; column < size; column++) {
+                double sum = row == column ? size : 0;
+                for (int k = 0; k < size; k++) {
+                    sum += mB.get(row, k) * mB.get(column, k);
+                }
+                mSymmetric.set(row, column, sum);
+            }
+        }
+    }
+
+    @Benchmark
+    public Object product() throws SyntaxException {
+        return mModule.applyBinary(Constants.MUL, mA, mB);
+    }
+
+    @Benchmark
+    public Object power() throws SyntaxException {
+        // Powers reuse the matrix as a work buffer
+        return mModule.applyBinary('^', mA.copy(), 5.0);
+    }
+
+    @Benchmark
+    public Object quotient() throws SyntaxException {
+        return mModule.applyBinary(Constants.DIV, mA, mSymmetric);
+    }
+
+    private static DMatrixRMaj matrix(Random random, int size) {
+        DMatrixRMaj matrix = new DMatrixRMaj(size, size);
+        for (int i = 0; i < matrix.getNumElements(); i++) {
+            matrix.data[i] = random.nextInt(19) - 9;
+        }
+        return matrix;
+    }
+}
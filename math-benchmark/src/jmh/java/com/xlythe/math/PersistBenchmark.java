@@ -0,0 +1,58 @@
+package com.xlythe.math;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Saves and loads the calculator's history.
+ */
+@State(Scope.Thread)
+public class PersistBenchmark {
+    @Param({"10", "100"})
+    public int entries;
+
+    private File mDirectory;
+    private Persist mPersist;
+
+    @Setup
+    public void setUp() throws IOException {
+        mDirectory = Files.createTempDirectory("persist").toFile();
+        mPersist = new Persist(new FileStorage(mDirectory));
+        mPersist.setMode(Base.DECIMAL);
+        for (int i = 0; i < entries; i++) {
+            mPersist.getHistory().enter(i + "\u00d7" + i + "+sin(" + i + ")", String.valueOf(i * i));
+        }
+        mPersist.save();
+    }
+
+    @TearDown
+    public void tearDown() {
+        File[] files = mDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        mDirectory.delete();
+    }
+
+    @Benchmark
+    public Persist save() {
+        mPersist.save();
+        return mPersist;
+    }
+
+    @Benchmark
+    public History load() {
+        mPersist.load();
+        return mPersist.getHistory();
+    }
+}
@@ -0,0 +1,53 @@
+package com.xlythe.math;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Solves a single equation, the way the calculator does every time the display changes.
+ * <p>
+ * Real equations are evaluated with doubles, and complex ones fall back to complex numbers. Compare
+ * gc.alloc.rate.norm between them to see what the fallback costs. {@link #evaluate()} leaves out
+ * formatting, so for a cached real equation it measures the double path on its own.
+ */
+@State(Scope.Thread)
+public class SolverBenchmark {
+    @Param({
+            // Scalar
+            "12\u00d73+4\u00f78\u22121",
+            // Complex
+            "(2+3i)\u00d7(1\u2212i)",
+            // Real functions with a complex result
+            "sqrt(\u22124)+ln(\u22121)",
+            // Trig
+            "sin(0.5)+cos(0.25)\u00d7tan(1)"
+    })
+    public String input;
+
+    // When false, every solve parses and compiles the equation from scratch
+    @Param({"true", "false"})
+    public boolean cached;
+
+    private Solver mSolver;
+
+    @Setup
+    public void setUp() {
+        mSolver = new Solver();
+        if (!cached) {
+            mSolver.getExpressionCache().setMaxSize(0);
+        }
+    }
+
+    @Benchmark
+    public String solve() throws SyntaxException {
+        return mSolver.solve(input);
+    }
+
+    @Benchmark
+    public double evaluate() throws SyntaxException {
+        return mSolver.solveForResult(input).getReal();
+    }
+}
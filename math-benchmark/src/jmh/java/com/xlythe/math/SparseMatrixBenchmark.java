@@ -0,0 +1,72 @@
+package com.xlythe.math;
+
+import org.ejml.data.DMatrixRMaj;
+import org.ejml.data.DMatrixSparseCSC;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Multiplies, adds and divides finite-difference matrices, stored sparse and dense. These are
+ * tridiagonal, so almost every element is zero.
+ * <p>
+ * Like MatrixConcurrencyBenchmark, the matrices are built directly instead of parsed.
+ */
+@State(Scope.Thread)
+public class SparseMatrixBenchmark {
+    @Param({"64", "256", "1024"})
+    public int size;
+
+    @Param({"true", "false"})
+    public boolean sparse;
+
+    private MatrixModule mModule;
+    private Object mA;
+    private Object mB;
+
+    @Setup
+    public void setUp() {
+        mModule = new Solver().getMatrixModule();
+        mModule.setSparseDensity(sparse ? MatrixModule.DEFAULT_SPARSE_DENSITY : 0);
+        mA = mModule.compress(laplacian(size, 2));
+        mB = mModule.compress(laplacian(size, 3));
+    }
+
+    @Benchmark
+    public Object product() throws SyntaxException {
+        return mModule.applyBinary(Constants.MUL, mA, mB);
+    }
+
+    @Benchmark
+    public Object sum() throws SyntaxException {
+        // Dense sums are added in place
+        return mModule.applyBinary('+', copy(mA), mB);
+    }
+
+    @Benchmark
+    public Object quotient() throws SyntaxException {
+        return mModule.applyBinary(Constants.DIV, mA, mB);
+    }
+
+    /**
+     * Returns the matrix for the second difference in one dimension, with the diagonal made
+     * larger so that it's well conditioned.
+     */
+    private static DMatrixRMaj laplacian(int size, double diagonal) {
+        DMatrixRMaj matrix = new DMatrixRMaj(size, size);
+        for (int i = 0; i < size; i++) {
+            matrix.set(i, i, diagonal);
+            if (i > 0) matrix.set(i, i - 1, -1);
+            if (i < size - 1) matrix.set(i, i + 1, -1);
+        }
+        return matrix;
+    }
+
+    private static Object copy(Object matrix) {
+        return matrix instanceof DMatrixSparseCSC
+                ? ((DMatrixSparseCSC) matrix).copy()
+                : ((DMatrixRMaj) matrix).copy();
+    }
+}
@@ -0,0 +1,43 @@
+package com.xlythe.math;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Locale;
+
+/**
+ * Turns spoken text into an equation, and back. Voice only rewrites English, so the default locale
+ * is switched to English while this runs.
+ */
+@State(Scope.Thread)
+public class VoiceBenchmark {
+    private static final String SPOKEN = "what's sign of 30 plus the square root of 16 times 2 minus 5 "
+            + "divided by 10 percent";
+    private static final String EQUATION = "\u2212sin(30)+sqrt(16)*2-5^2";
+
+    private Locale mLocale;
+
+    @Setup
+    public void setUp() {
+        mLocale = Locale.getDefault();
+        Locale.setDefault(Locale.ENGLISH);
+    }
+
+    @TearDown
+    public void tearDown() {
+        Locale.setDefault(mLocale);
+    }
+
+    @Benchmark
+    public String parseSpokenText() {
+        return Voice.parseSpokenText(SPOKEN);
+    }
+
+    @Benchmark
+    public String createSpokenText() {
+        return Voice.createSpokenText(EQUATION);
+    }
+}
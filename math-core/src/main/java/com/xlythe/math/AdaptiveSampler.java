@@ -0,0 +1,145 @@
+package com.xlythe.math;
+
+import org.javia.arity.Function;
+
+/**
+ * Samples a function of one variable, placing samples where the curve bends instead of at a fixed
+ * step.
+ * <p>
+ * The domain is first cut into coarse intervals. Each interval is split in half until the line
+ * between its ends passes within half a pixel of its midpoint, so straight stretches use few
+ * samples and sharp turns use many. Where the function is undefined, or jumps by many pixels
+ * between two neighbouring samples without passing through the values in between, the line is
+ * broken instead of drawn across the gap.
+ * <p>
+ * A sampler evaluates with its own context, so separate samplers can run on separate threads.
+ */
+class AdaptiveSampler {
+    // How far, in pixels, the drawn line may stray from the curve
+    private static final double MAX_ERROR = 0.5;
+    // The first pass places a sample every this many pixels
+    private static final double INITIAL_SPACING = 8;
+    // Intervals narrower than this many pixels are never split
+    private static final double MIN_SPACING = 0.25;
+    // A backstop against splitting forever, on top of MIN_SPACING
+    private static final int MAX_DEPTH = 24;
+    // Jumps shorter than this many pixels are never treated as discontinuities
+    private static final double MIN_JUMP = 64;
+
+    private final Evaluator mFunction;
+    private final boolean mSwapAxes;
+    private final double mParameterPixel;
+    private final double mTolerance;
+    private final double mJump;
+    private final int mMaxSamples;
+
+    private PointBuffer mOut;
+    private int mSamples;
+
+    /**
+     * @param function       A function of one variable.
+     * @param parameterPixel The size of a pixel along the function's input axis.
+     * @param valuePixel     The size of a pixel along the function's output axis.
+     * @param maxSamples     The most times the function may be evaluated while refining. Checking
+     *                       a large jump for a break takes one more evaluation.
+     * @param swapAxes       True if the function's input is y and its output is x.
+     */
+    AdaptiveSampler(Function function, double parameterPixel, double valuePixel,
+                    int maxSamples, boolean swapAxes) {
+        mFunction = new Evaluator(function);
+        mParameterPixel = parameterPixel;
+        mTolerance = MAX_ERROR * valuePixel;
+        mJump = MIN_JUMP * valuePixel;
+        mMaxSamples = maxSamples;
+        mSwapAxes = swapAxes;
+    }
+
+    /**
+     * Samples the function between min and max, writing the points into the buffer.
+     *
+     * @return false if the work was cancelled before it finished.
+     */
+    boolean sample(double min, double max, PointBuffer out, Cancellable cancellable) {
+        mOut = out;
+        mSamples = 0;
+
+        int intervals = (int) Math.max(1, Math.ceil((max - min) / (INITIAL_SPACING * mParameterPixel)));
+        intervals = Math.min(intervals, Math.max(1, mMaxSamples / 4));
+        double step = (max - min) / intervals;
+
+        double t0 = min;
+        double v0 = evaluate(t0);
+        emit(t0, v0);
+        for (int i = 1; i <= intervals; i++) {
+            if (cancellable.isCancelled()) {
+                return false;
+            }
+
+            double t1 = i == intervals ? max : min + i * step;
+            double v1 = evaluate(t1);
+            refine(t0, v0, t1, v1, 0);
+            t0 = t1;
+            v0 = v1;
+        }
+        mOut = null;
+        return true;
+    }
+
+    /**
+     * Writes out the curve from t0 (exclusive) to t1 (inclusive).
+     */
+    private void refine(double t0, double v0, double t1, double v1, int depth) {
+        boolean finite0 = isFinite(v0);
+        boolean finite1 = isFinite(v1);
+        if (!finite0 && !finite1) {
+            emit(t1, v1);
+            return;
+        }
+
+        double width = t1 - t0;
+        boolean atResolution = depth >= MAX_DEPTH || width <= MIN_SPACING * mParameterPixel;
+        if (!atResolution && mSamples < mMaxSamples) {
+            double tm = t0 + width / 2;
+            double vm = evaluate(tm);
+            if (!finite0 || !finite1 || !isFinite(vm) || Math.abs(vm - (v0 + v1) / 2) > mTolerance) {
+                refine(t0, v0, tm, vm, depth + 1);
+                refine(tm, vm, t1, v1, depth + 1);
+            } else {
+                // The line from t0 to t1 is close enough to the curve
+                emit(t1, v1);
+            }
+            return;
+        }
+
+        // We can't look any closer, or we've run out of samples. A steep curve still passes through
+        // the values in between, but at a discontinuity (like tan(x) at pi/2) the middle is somewhere
+        // else entirely. This runs even past the budget, since drawing the jump would be worse.
+        if (finite0 && finite1 && Math.abs(v1 - v0) > mJump) {
+            double vm = evaluate(t0 + width / 2);
+            if (!(vm >= Math.min(v0, v1) && vm <= Math.max(v0, v1))) {
+                mOut.addBreak();
+            }
+        }
+        emit(t1, v1);
+    }
+
+    private double evaluate(double t) {
+        mSamples++;
+        return mFunction.eval(t);
+    }
+
+    private void emit(double t, double v) {
+        if (!isFinite(v)) {
+            mOut.addBreak();
+        } else if (mSwapAxes) {
+            mOut.add((float) v, (float) t);
+        } else {
+            mOut.add((float) t, (float) v);
+        }
+    }
+
+    private static boolean isFinite(double value) {
+        // Anything too large for a float can't be drawn either
+        return Math.abs(value) <= Float.MAX_VALUE;
+    }
+}
@@ -5,6 +5,7 @@ package com.xlythe.math;
  */
 public enum Base {
     BINARY(2),
+    OCTAL(8),
     DECIMAL(10),
     HEXADECIMAL(16);
 
@@ -17,4 +18,11 @@ public enum Base {
     public int getQuickSerializable() {
         return quickSerializable;
     }
+
+    /**
+     * Returns how many digits this base has.
+     */
+    public int getRadix() {
+        return quickSerializable;
+    }
 }
@@ -0,0 +1,334 @@
+package com.xlythe.math;
+
+import java.math.BigInteger;
+
+@SuppressWarnings({"WeakerAccess", "unused"})
+public class BaseModule extends Module {
+    // Used to keep a reference to the cursor in text
+    public static final char SELECTION_HANDLE = '\u2620';
+    private static final String TAG = "Calculator";
+    // How many digits to keep after the decimal point when changing bases, by default
+    private final static int DEFAULT_PRECISION = 9;
+    // Fractions that fit in this many bits are converted with doubles. The last few bits may be
+    // rounded, so they're not relied on for digits.
+    private final static int DOUBLE_BITS = 53;
+    private final static int DOUBLE_GUARD_BITS = 8;
+    // Text is converted into a reused builder. Graphs convert their equations in the background,
+    // so each thread has its own.
+    private static final ThreadLocal<StringBuilder> BUILDER = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder();
+        }
+    };
+
+    // The current base. Defaults to decimal.
+    private Base mBase = Base.DECIMAL;
+
+    // How many digits to keep after the decimal point when changing bases
+    private int mPrecision = DEFAULT_PRECISION;
+
+    // A listener for when the base changes.
+    private OnBaseChangeListener mBaseChangeListener;
+
+    BaseModule(Solver solver) {
+        super(solver);
+    }
+
+    public Base getBase() {
+        return mBase;
+    }
+
+    public void setBase(Base base) {
+        mBase = base;
+        if (mBaseChangeListener != null) mBaseChangeListener.onBaseChange(mBase);
+    }
+
+    public String setBase(String input, Base base) throws SyntaxException {
+        String text = changeBase(input, mBase, base);
+        setBase(base);
+        return text;
+    }
+
+    /**
+     * Updates the text to the new base. This does not set the active base.
+     */
+    String changeBase(String text, Base base) throws SyntaxException {
+        return changeBase(text, Base.DECIMAL, base);
+    }
+
+    /**
+     * Updates the text to the new base. This does not set the active base.
+     */
+    String changeBase(final String originalText, final Base oldBase, final Base newBase) throws SyntaxException {
+        if (oldBase.equals(newBase) || originalText.isEmpty() || isSingleOperator(originalText)) {
+            return originalText;
+        }
+
+        // Numbers are converted as they're found. Everything between them is copied as is.
+        StringBuilder text = obtainBuilder();
+        boolean changed = false;
+        int length = originalText.length();
+        int i = 0;
+        while (i < length) {
+            char c = originalText.charAt(i);
+            if (!isNumberOrHandle(c)) {
+                text.append(c);
+                i++;
+                continue;
+            }
+
+            int end = i + 1;
+            while (end < length && isNumberOrHandle(originalText.charAt(end))) {
+                end++;
+            }
+            try {
+                appendInBase(text, originalText, i, end, radix(oldBase), radix(newBase));
+            } catch (NumberFormatException e) {
+                Log.e(TAG, originalText.substring(i, end) + " is not a number", e);
+                throw new SyntaxException(e);
+            }
+            changed = true;
+            i = end;
+        }
+        return changed ? text.toString() : originalText;
+    }
+
+    /**
+     * Converts the number between start and end from one radix to another, and appends it.
+     * Numbers of any size are converted exactly. The fraction is cut off, not rounded, after
+     * {@link #getPrecision()} digits.
+     *
+     * @throws NumberFormatException if the number isn't valid in its radix.
+     */
+    private void appendInBase(StringBuilder out, String text, int start, int end,
+                              int originalRadix, int radix) {
+        RadixConverter from = RadixConverter.forRadix(originalRadix);
+        RadixConverter to = RadixConverter.forRadix(radix);
+
+        int point = indexOf(text, getDecimalPoint(), start, end);
+        int wholeEnd = point == -1 ? end : point;
+        int fractionStart = point == -1 ? end : point + 1;
+        // Only the digits up to the next decimal point, if there is one, are read
+        int fractionEnd = point == -1 ? -1 : indexOf(text, getDecimalPoint(), fractionStart, end);
+        if (fractionEnd == -1) fractionEnd = end;
+        int digits = fractionEnd - fractionStart;
+
+        // Most numbers fit in a long, and their fractions in a double, so there's no need to
+        // allocate anything to convert them
+        if (wholeEnd - start <= from.getChunkDigits()
+                && digits * bitsPerDigit(originalRadix) <= DOUBLE_BITS
+                && mPrecision * bitsPerDigit(radix) <= DOUBLE_BITS - DOUBLE_GUARD_BITS) {
+            to.appendChunk(out, from.parseChunk(text, start, wholeEnd), 1);
+            if (digits == 0) return;
+
+            // Both the digits and the power fit exactly in a double, so dividing them rounds only once
+            double decimal = from.parseChunk(text, fractionStart, fractionEnd) / Math.pow(originalRadix, digits);
+            if (decimal == 0) return;
+
+            out.append(getDecimalPoint());
+            for (int i = 0; decimal != 0 && i < mPrecision; i++) {
+                decimal *= radix;
+                int id = (int) Math.floor(decimal);
+                decimal -= id;
+                out.append(Character.toUpperCase(Character.forDigit(id, radix)));
+            }
+            stripTrailingZeros(out);
+            return;
+        }
+
+        to.append(out, from.parse(text, start, wholeEnd), 1);
+        if (digits == 0) return;
+
+        // The fraction is f / originalRadix^digits, so its first digits in the new radix are
+        // f * radix^precision / originalRadix^digits
+        BigInteger fraction = from.parse(text, fractionStart, fractionEnd)
+                .multiply(to.pow(mPrecision))
+                .divide(from.pow(digits));
+        if (fraction.signum() == 0) return;
+
+        out.append(getDecimalPoint());
+        to.append(out, fraction, mPrecision);
+        stripTrailingZeros(out);
+    }
+
+    /**
+     * Removes 0s from the end of a fraction, and the decimal point too if nothing's left after it.
+     */
+    private void stripTrailingZeros(StringBuilder out) {
+        int length = out.length();
+        while (out.charAt(length - 1) == '0') {
+            length--;
+        }
+        if (out.charAt(length - 1) == getDecimalPoint()) {
+            length--;
+        }
+        out.setLength(length);
+    }
+
+    private static int bitsPerDigit(int radix) {
+        return 32 - Integer.numberOfLeadingZeros(radix - 1);
+    }
+
+    /**
+     * Sets how many digits are kept after the decimal point when changing bases.
+     */
+    public void setPrecision(int digits) {
+        if (digits < 0) throw new IllegalArgumentException("Precision cannot be negative");
+        mPrecision = digits;
+    }
+
+    public int getPrecision() {
+        return mPrecision;
+    }
+
+    public String groupSentence(String originalText, int selectionHandle) {
+        if (originalText.isEmpty() || isSingleOperator(originalText)) return originalText;
+
+        if (selectionHandle >= 0 && selectionHandle <= originalText.length()) {
+            originalText = originalText.substring(0, selectionHandle) +
+                    SELECTION_HANDLE +
+                    originalText.substring(selectionHandle);
+        }
+
+        StringBuilder text = obtainBuilder();
+        int length = originalText.length();
+        int i = 0;
+        while (i < length) {
+            char c = originalText.charAt(i);
+            if (!isNumberOrHandle(c)) {
+                text.append(c);
+                i++;
+                continue;
+            }
+
+            int end = i + 1;
+            while (end < length && isNumberOrHandle(originalText.charAt(end))) {
+                end++;
+            }
+            appendGroupedDigits(text, originalText, i, end, mBase);
+            i = end;
+        }
+        return text.toString();
+    }
+
+    public String groupDigits(String number, Base base) {
+        StringBuilder text = new StringBuilder(number.length() + number.length() / 2);
+        appendGroupedDigits(text, number, 0, number.length(), base);
+        return text.toString();
+    }
+
+    private void appendGroupedDigits(StringBuilder out, String number, int start, int end, Base base) {
+        if (start < end && (number.charAt(start) == Constants.MINUS || number.charAt(start) == '-')) {
+            out.append(Constants.MINUS);
+            start++;
+        }
+
+        // We only group the whole number
+        int point = indexOf(number, getDecimalPoint(), start, end);
+        if (point == -1) {
+            group(out, number, start, end, getSeparatorDistance(base), getSeparator(base));
+        } else if (point == start) {
+            out.append(number, start, end);
+        } else {
+            group(out, number, start, point, getSeparatorDistance(base), getSeparator(base));
+            int fractionEnd = indexOf(number, getDecimalPoint(), point + 1, end);
+            out.append(number, point, fractionEnd == -1 ? end : fractionEnd);
+        }
+    }
+
+    private static void group(StringBuilder out, String wholeNumber, int start, int end, int spacing, char separator) {
+        // Separators are placed counting from the right, so first count the digits. The first
+        // character, or the first after a leading selection handle, is never preceded by one.
+        int digitsLeft = 0;
+        for (int i = start; i < end; i++) {
+            if (isGroupedDigit(wholeNumber, start, i)) ++digitsLeft;
+        }
+
+        for (int i = start; i < end; i++) {
+            if (isGroupedDigit(wholeNumber, start, i)) {
+                if (digitsLeft % spacing == 0) {
+                    out.append(separator);
+                }
+                --digitsLeft;
+            }
+            out.append(wholeNumber.charAt(i));
+        }
+    }
+
+    private static boolean isGroupedDigit(String wholeNumber, int start, int i) {
+        return wholeNumber.charAt(i) != SELECTION_HANDLE && i != start
+                && !(i == start + 1 && wholeNumber.charAt(start) == SELECTION_HANDLE);
+    }
+
+    private static boolean isSingleOperator(String text) {
+        return text.length() == 1 && !isNumberOrHandle(text.charAt(0));
+    }
+
+    private static boolean isNumberOrHandle(char c) {
+        return Constants.isNumberChar(c) || c == SELECTION_HANDLE;
+    }
+
+    private static int indexOf(String text, char c, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) == c) return i;
+        }
+        return -1;
+    }
+
+    private static int radix(Base base) {
+        return base.getRadix();
+    }
+
+    private static StringBuilder obtainBuilder() {
+        StringBuilder builder = BUILDER.get();
+        builder.setLength(0);
+        return builder;
+    }
+
+    public char getSeparator(Base base) {
+        switch (base) {
+            case DECIMAL:
+                return getDecSeparator();
+            case BINARY:
+                return getBinSeparator();
+            case OCTAL:
+                return getOctSeparator();
+            case HEXADECIMAL:
+                return getHexSeparator();
+            default:
+                return 0;
+        }
+    }
+
+    public char getSeparator() {
+        return getSeparator(mBase);
+    }
+
+    private int getSeparatorDistance(Base base) {
+        switch (base) {
+            case DECIMAL:
+                return getDecSeparatorDistance();
+            case BINARY:
+                return getBinSeparatorDistance();
+            case OCTAL:
+                return getOctSeparatorDistance();
+            case HEXADECIMAL:
+                return getHexSeparatorDistance();
+            default:
+                return -1;
+        }
+    }
+
+    public OnBaseChangeListener getOnBaseChangeListener() {
+        return mBaseChangeListener;
+    }
+
+    public void setOnBaseChangeListener(OnBaseChangeListener l) {
+        mBaseChangeListener = l;
+    }
+
+    public interface OnBaseChangeListener {
+        void onBaseChange(Base newBase);
+    }
+}
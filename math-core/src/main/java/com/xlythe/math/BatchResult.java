@@ -0,0 +1,50 @@
+package com.xlythe.math;
+
+/**
+ * The outcome of solving a single equation as part of {@link Solver#solveAll}.
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public class BatchResult {
+    private final String mInput;
+    private final String mResult;
+    private final SyntaxException mException;
+
+    BatchResult(String input, String result) {
+        mInput = input;
+        mResult = result;
+        mException = null;
+    }
+
+    BatchResult(String input, SyntaxException exception) {
+        mInput = input;
+        mResult = null;
+        mException = exception;
+    }
+
+    public String getInput() {
+        return mInput;
+    }
+
+    /**
+     * Returns the solved equation, or null if it could not be solved.
+     */
+    public String getResult() {
+        return mResult;
+    }
+
+    /**
+     * Returns the reason the equation could not be solved, or null if it was solved.
+     */
+    public SyntaxException getException() {
+        return mException;
+    }
+
+    public boolean isSuccessful() {
+        return mException == null;
+    }
+
+    @Override
+    public String toString() {
+        return mInput + " = " + (isSuccessful() ? mResult : mException);
+    }
+}
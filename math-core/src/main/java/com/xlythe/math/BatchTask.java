@@ -0,0 +1,94 @@
+package com.xlythe.math;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Solves a range of equations, splitting the range across the pool until it is small enough to
+ * solve directly. Each worker thread solves with its own Solver, so no state is shared.
+ */
+@SuppressWarnings("serial")
+class BatchTask extends RecursiveAction {
+    // Ranges at or below this size are solved directly instead of being split further
+    private static final int THRESHOLD = 16;
+
+    private final ThreadLocal<Solver> mWorkers;
+    private final Base mBase;
+    private final int mPrecision;
+    private final int mLineLength;
+    private final Localizer mLocalizer;
+    private final SolverMetrics mMetrics;
+    private final int mCacheSize;
+    private final int mConcurrencyThreshold;
+    private final double mSparseDensity;
+    private final String[] mInputs;
+    private final BatchResult[] mResults;
+    private final int mFrom;
+    private final int mTo;
+
+    /**
+     * Creates a task that solves every input with the given Solver's settings. The settings are
+     * copied now, so later changes to the Solver won't affect this batch.
+     */
+    BatchTask(Solver solver, ThreadLocal<Solver> workers, String[] inputs, BatchResult[] results) {
+        mWorkers = workers;
+        mBase = solver.getBase();
+        mPrecision = solver.getBaseModule().getPrecision();
+        mLineLength = solver.getLineLength();
+        mLocalizer = solver.getLocalizer();
+        mMetrics = solver.getMetrics();
+        mCacheSize = solver.getExpressionCache().getMaxSize();
+        mConcurrencyThreshold = solver.getMatrixModule().getConcurrencyThreshold();
+        mSparseDensity = solver.getMatrixModule().getSparseDensity();
+        mInputs = inputs;
+        mResults = results;
+        mFrom = 0;
+        mTo = inputs.length;
+    }
+
+    private BatchTask(BatchTask parent, int from, int to) {
+        mWorkers = parent.mWorkers;
+        mBase = parent.mBase;
+        mPrecision = parent.mPrecision;
+        mLineLength = parent.mLineLength;
+        mLocalizer = parent.mLocalizer;
+        mMetrics = parent.mMetrics;
+        mCacheSize = parent.mCacheSize;
+        mConcurrencyThreshold = parent.mConcurrencyThreshold;
+        mSparseDensity = parent.mSparseDensity;
+        mInputs = parent.mInputs;
+        mResults = parent.mResults;
+        mFrom = from;
+        mTo = to;
+    }
+
+    @Override
+    protected void compute() {
+        if (mTo - mFrom <= THRESHOLD) {
+            solve();
+            return;
+        }
+
+        int mid = (mFrom + mTo) >>> 1;
+        invokeAll(new BatchTask(this, mFrom, mid), new BatchTask(this, mid, mTo));
+    }
+
+    private void solve() {
+        Solver solver = mWorkers.get();
+        solver.setBase(mBase);
+        solver.getBaseModule().setPrecision(mPrecision);
+        solver.setLineLength(mLineLength);
+        solver.setLocalizer(mLocalizer);
+        solver.setMetrics(mMetrics);
+        solver.getExpressionCache().setMaxSize(mCacheSize);
+        solver.getMatrixModule().setConcurrencyThreshold(mConcurrencyThreshold);
+        solver.getMatrixModule().setSparseDensity(mSparseDensity);
+
+        for (int i = mFrom; i < mTo; i++) {
+            try {
+                mResults[i] = new BatchResult(mInputs[i], solver.solve(mInputs[i]));
+            } catch (SyntaxException e) {
+                mResults[i] = new BatchResult(mInputs[i], e);
+            }
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.xlythe.math;
+
+/**
+ * Long running work, like drawing a graph, polls this to find out if it should stop early.
+ */
+interface Cancellable {
+    boolean isCancelled();
+}
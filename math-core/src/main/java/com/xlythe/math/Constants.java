@@ -25,11 +25,18 @@ public class Constants {
     public static char DECIMAL_POINT;
     public static char DECIMAL_SEPARATOR;
     public static char BINARY_SEPARATOR;
+    public static char OCTAL_SEPARATOR;
     public static char HEXADECIMAL_SEPARATOR;
     public static char MATRIX_SEPARATOR;
     public static String REGEX_NUMBER;
     public static String REGEX_NOT_NUMBER;
 
+    // Compiled once per locale, instead of every time they're used.
+    // Numbers are matched like REGEX_NUMBER, but also count BaseModule.SELECTION_HANDLE.
+    static Pattern NUMBER_OR_HANDLE_PATTERN;
+    static Pattern NOT_NUMBER_OR_HANDLE_PATTERN;
+    static Pattern DECIMAL_POINT_PATTERN;
+
     static {
         rebuildConstants();
     }
@@ -44,8 +51,9 @@ public class Constants {
         DECIMAL_POINT = decimalFormat.getDecimalSeparator();
         DECIMAL_SEPARATOR = decimalFormat.getGroupingSeparator();
 
-        // Use a space for Bin and Hex
+        // Use a space for Bin, Oct and Hex
         BINARY_SEPARATOR = ' ';
+        OCTAL_SEPARATOR = ' ';
         HEXADECIMAL_SEPARATOR = ' ';
 
         // We have to be careful with the Matrix Separator.
@@ -57,9 +65,23 @@ public class Constants {
                 Pattern.quote(String.valueOf(DECIMAL_POINT)) +
                 Pattern.quote(String.valueOf(DECIMAL_SEPARATOR)) +
                 Pattern.quote(String.valueOf(BINARY_SEPARATOR)) +
+                Pattern.quote(String.valueOf(OCTAL_SEPARATOR)) +
                 Pattern.quote(String.valueOf(HEXADECIMAL_SEPARATOR));
 
         REGEX_NUMBER = "[" + number + "]";
         REGEX_NOT_NUMBER = "[^" + number + "]";
+
+        NUMBER_OR_HANDLE_PATTERN = Pattern.compile("[" + number + BaseModule.SELECTION_HANDLE + "]");
+        NOT_NUMBER_OR_HANDLE_PATTERN = Pattern.compile("[^" + number + BaseModule.SELECTION_HANDLE + "]");
+        DECIMAL_POINT_PATTERN = Pattern.compile(Pattern.quote(String.valueOf(DECIMAL_POINT)));
+    }
+
+    /**
+     * Returns true if the character can be part of a number, in any base.
+     */
+    static boolean isNumberChar(char c) {
+        return (c >= '0' && c <= '9') || (c >= 'A' && c <= 'F')
+                || c == DECIMAL_POINT || c == DECIMAL_SEPARATOR
+                || c == BINARY_SEPARATOR || c == OCTAL_SEPARATOR || c == HEXADECIMAL_SEPARATOR;
     }
 }
@@ -0,0 +1,38 @@
+package com.xlythe.math;
+
+import org.javia.arity.ContextFunction;
+import org.javia.arity.EvalContext;
+import org.javia.arity.Function;
+
+/**
+ * Evaluates a compiled function with a private EvalContext.
+ * <p>
+ * Calling {@link Function#eval(double)} directly shares one EvalContext with every other function,
+ * so only one thread can evaluate at a time. Each thread that evaluates a function in parallel
+ * should use its own Evaluator instead.
+ */
+final class Evaluator {
+    private final Function mFunction;
+    private final ContextFunction mContextFunction;
+    private final EvalContext mContext;
+
+    Evaluator(Function function) {
+        mFunction = function;
+        if (function instanceof ContextFunction) {
+            mContextFunction = (ContextFunction) function;
+            mContext = new EvalContext();
+        } else {
+            // Constants and other simple functions don't need a context
+            mContextFunction = null;
+            mContext = null;
+        }
+    }
+
+    double eval(double x) {
+        return mContextFunction != null ? mContextFunction.eval(x, mContext) : mFunction.eval(x);
+    }
+
+    double eval(double x, double y) {
+        return mContextFunction != null ? mContextFunction.eval(x, y, mContext) : mFunction.eval(x, y);
+    }
+}
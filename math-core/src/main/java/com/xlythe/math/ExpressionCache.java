@@ -0,0 +1,191 @@
+package com.xlythe.math;
+
+import org.javia.arity.Function;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded, least-recently-used cache of compiled equations.
+ * <p>
+ * Solving an equation requires localizing it, converting it to decimal, and parsing it. None of
+ * that work depends on anything but the input and the Solver's settings, so the compiled result
+ * is kept around and repeated calls only need to evaluate it.
+ * <p>
+ * If symbols are defined directly on {@link Solver#getSymbols()}, call {@link #clear()} afterwards.
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public class ExpressionCache {
+    // How many equations to remember by default
+    public static final int DEFAULT_MAX_SIZE = 256;
+
+    private final LinkedHashMap<Key, Entry> mEntries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            if (size() > mMaxSize) {
+                mEvictionCount++;
+                return true;
+            }
+            return false;
+        }
+    };
+
+    private int mMaxSize = DEFAULT_MAX_SIZE;
+    private long mHitCount;
+    private long mMissCount;
+    private long mEvictionCount;
+
+    ExpressionCache() {}
+
+    Entry get(Key key) {
+        if (mMaxSize == 0) {
+            return null;
+        }
+
+        Entry entry = mEntries.get(key);
+        if (entry != null) {
+            mHitCount++;
+        }
+        return entry;
+    }
+
+    /**
+     * Counts a lookup that missed. Misses are counted separately from {@link #get(Key)}, and only
+     * for equations that will be cached, so that matrices don't drag down the hit ratio.
+     */
+    void onMiss() {
+        if (mMaxSize == 0) {
+            return;
+        }
+
+        mMissCount++;
+    }
+
+    void put(Key key, Entry entry) {
+        if (mMaxSize == 0) {
+            return;
+        }
+
+        mEntries.put(key, entry);
+    }
+
+    /**
+     * Sets how many equations will be remembered. A size of 0 disables caching.
+     */
+    public void setMaxSize(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Cache size must not be negative, but was " + maxSize);
+        }
+
+        mMaxSize = maxSize;
+        while (mEntries.size() > mMaxSize) {
+            mEntries.remove(mEntries.keySet().iterator().next());
+            mEvictionCount++;
+        }
+    }
+
+    public int getMaxSize() {
+        return mMaxSize;
+    }
+
+    public int size() {
+        return mEntries.size();
+    }
+
+    /**
+     * Forgets every compiled equation. Hit, miss, and eviction counts are kept.
+     */
+    public void clear() {
+        mEntries.clear();
+    }
+
+    public long getHitCount() {
+        return mHitCount;
+    }
+
+    public long getMissCount() {
+        return mMissCount;
+    }
+
+    public long getEvictionCount() {
+        return mEvictionCount;
+    }
+
+    @Override
+    public String toString() {
+        return "ExpressionCache{size=" + size()
+                + ", maxSize=" + mMaxSize
+                + ", hits=" + mHitCount
+                + ", misses=" + mMissCount
+                + ", evictions=" + mEvictionCount
+                + "}";
+    }
+
+    /**
+     * Everything that changes how an input string is compiled.
+     */
+    static final class Key {
+        private final String mInput;
+        private final Base mBase;
+        // Inputs outside of decimal are converted to this many digits
+        private final int mPrecision;
+        private final int mLineLength;
+        private final Localizer mLocalizer;
+        // Localizers can gain translations after an equation is cached
+        private final int mLocalizerVersion;
+        private final boolean mUseDegrees;
+
+        Key(String input, Base base, int precision, int lineLength, Localizer localizer) {
+            mInput = input;
+            mBase = base;
+            mPrecision = precision;
+            mLineLength = lineLength;
+            mLocalizer = localizer;
+            mLocalizerVersion = localizer != null ? localizer.getVersion() : 0;
+            mUseDegrees = localizer != null && localizer.isUsingDegrees();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+
+            Key key = (Key) o;
+            return mPrecision == key.mPrecision
+                    && mLineLength == key.mLineLength
+                    && mLocalizerVersion == key.mLocalizerVersion
+                    && mUseDegrees == key.mUseDegrees
+                    && mBase == key.mBase
+                    && mLocalizer == key.mLocalizer
+                    && mInput.equals(key.mInput);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = mInput.hashCode();
+            result = 31 * result + mBase.hashCode();
+            result = 31 * result + mPrecision;
+            result = 31 * result + mLineLength;
+            result = 31 * result + (mLocalizer != null ? System.identityHashCode(mLocalizer) : 0);
+            result = 31 * result + mLocalizerVersion;
+            result = 31 * result + (mUseDegrees ? 1 : 0);
+            return result;
+        }
+    }
+
+    /**
+     * A compiled equation, along with the decimal string it was compiled from.
+     */
+    static final class Entry {
+        final Function function;
+        final String decimalInput;
+        // Set once evaluating with doubles fails, so later evaluations go straight to complex
+        // numbers instead of trying doubles first
+        boolean complex;
+
+        Entry(Function function, String decimalInput) {
+            this.function = function;
+            this.decimalInput = decimalInput;
+        }
+    }
+}
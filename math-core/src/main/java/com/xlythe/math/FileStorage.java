@@ -0,0 +1,34 @@
+package com.xlythe.math;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Keeps files in a directory.
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public class FileStorage implements Storage {
+    private final File mDirectory;
+
+    public FileStorage(File directory) {
+        mDirectory = directory;
+    }
+
+    public File getDirectory() {
+        return mDirectory;
+    }
+
+    @Override
+    public InputStream openInput(String name) throws IOException {
+        return new FileInputStream(new File(mDirectory, name));
+    }
+
+    @Override
+    public OutputStream openOutput(String name) throws IOException {
+        return new FileOutputStream(new File(mDirectory, name));
+    }
+}
@@ -0,0 +1,408 @@
+package com.xlythe.math;
+
+import org.javia.arity.Function;
+import org.javia.arity.Symbols;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+@SuppressWarnings({"WeakerAccess", "unused"})
+public class GraphModule extends Module {
+    private static final String X = "X";
+    private static final String Y = "Y";
+    // The most times a curve will be evaluated by default
+    private static final int DEFAULT_MAX_SAMPLES = 10000;
+    private float mMinY;
+    private float mMaxY;
+    private float mMinX;
+    private float mMaxX;
+    private float mZoomLevel = 1f;
+    // The size of the graph on screen, in pixels. 0 if unknown.
+    private int mWidth;
+    private int mHeight;
+    private int mMaxSamples = DEFAULT_MAX_SAMPLES;
+    // A buffer handed back by the listener, to be filled by the next graph
+    private PointBuffer mRecycledBuffer;
+    // Curves sampled by earlier graphs, reused when panning and zooming
+    private final TileCache mTileCache = new TileCache();
+    // Where curves are evaluated. Graphs are split into chunks that run in parallel.
+    private ForkJoinPool mPool = ForkJoinPool.commonPool();
+    // Where each graph is put together, and where listeners are told about it. Null for the
+    // platform's default.
+    private Executor mExecutor;
+    private Executor mCallbackExecutor;
+
+    public GraphModule(Solver solver) {
+        super(solver);
+    }
+
+    public void setRange(float min, float max) {
+        mMinY = min;
+        mMaxY = max;
+    }
+
+    public void setDomain(float min, float max) {
+        mMinX = min;
+        mMaxX = max;
+    }
+
+    public void setZoomLevel(float level) {
+        mZoomLevel = level;
+    }
+
+    /**
+     * Sets the size of the graph on screen, in pixels. Curves are sampled finely enough to be
+     * accurate to half a pixel. If not set, the curve is assumed to be drawn at one pixel per
+     * {@code 0.1 * zoomLevel}.
+     */
+    public void setResolution(int width, int height) {
+        mWidth = width;
+        mHeight = height;
+    }
+
+    /**
+     * Sets the most times a curve may be evaluated when it's graphed. Tiles that were already
+     * sampled don't count. Checking a large jump for a break takes one evaluation more.
+     */
+    public void setMaxSamples(int maxSamples) {
+        mMaxSamples = maxSamples;
+    }
+
+    /**
+     * Sets the pool that graphs are evaluated on. By default, the common pool is used.
+     */
+    public void setForkJoinPool(ForkJoinPool pool) {
+        mPool = pool;
+    }
+
+    /**
+     * Sets where graphs are started. Curves are still evaluated on the ForkJoinPool. By default,
+     * this is the platform's background executor.
+     */
+    public void setExecutor(Executor executor) {
+        mExecutor = executor;
+    }
+
+    /**
+     * Sets where listeners are called with finished graphs. On Android, this is the main thread by
+     * default. Elsewhere, it's whichever thread finished the graph.
+     */
+    public void setCallbackExecutor(Executor executor) {
+        mCallbackExecutor = executor;
+    }
+
+    /**
+     * Forgets every curve sampled so far. Panning and zooming will sample curves from scratch.
+     */
+    public void clearCache() {
+        mTileCache.clear();
+    }
+
+    /**
+     * Given a function, updateGraph will attempt to build a list of points that can be graphed.
+     */
+    public GraphTask updateGraph(String text, final OnGraphUpdatedListener l) {
+        if (!canGraph(text) || mMinX == mMaxX) {
+            return null;
+        }
+
+        return execute(new String[] { text }, obtainBuffer(), new OnGraphsUpdatedListener() {
+            @Override
+            public void onGraphsUpdated(List<PointBuffer> results) {
+                l.onGraphUpdated(results == null ? null : results.get(0));
+            }
+        });
+    }
+
+    /**
+     * Graphs several equations at once, like {@link #updateGraph(String, OnGraphUpdatedListener)}.
+     * The equations are compiled together and sampled in a single sweep, so overlaying several
+     * curves costs about as much as graphing the most detailed of them.
+     * <p>
+     * The listener receives one series per equation, in the same order. Equations that can't be
+     * graphed get an empty series.
+     */
+    public GraphTask updateGraphs(List<String> equations, OnGraphsUpdatedListener l) {
+        if (equations.isEmpty() || mMinX == mMaxX) {
+            return null;
+        }
+
+        String[] texts = new String[equations.size()];
+        for (int i = 0; i < texts.length; i++) {
+            String text = equations.get(i);
+            texts[i] = canGraph(text) ? text : null;
+        }
+        return execute(texts, obtainBuffer(), l);
+    }
+
+    private boolean canGraph(String text) {
+        boolean endsWithOperator = text.length() != 0 &&
+                (Solver.isOperator(text.charAt(text.length() - 1)) || text.endsWith("("));
+        boolean containsMatrices = getSolver().displayContainsMatrices(text);
+        return !endsWithOperator && !containsMatrices;
+    }
+
+    private PointBuffer obtainBuffer() {
+        PointBuffer buffer = mRecycledBuffer != null ? mRecycledBuffer : new PointBuffer();
+        mRecycledBuffer = null;
+        buffer.clear();
+        return buffer;
+    }
+
+    private GraphTask execute(String[] equations, PointBuffer firstBuffer, OnGraphsUpdatedListener l) {
+        List<PointBuffer> buffers = new ArrayList<>(equations.length);
+        buffers.add(firstBuffer);
+        for (int i = 1; i < equations.length; i++) {
+            buffers.add(new PointBuffer());
+        }
+
+        Viewport viewport = new Viewport(mMinX, mMaxX, mMinY, mMaxY, mZoomLevel, mWidth, mHeight, mMaxSamples);
+        Executor callbackExecutor = mCallbackExecutor != null
+                ? mCallbackExecutor : Platforms.get().getCallbackExecutor();
+        GraphTask newTask = new GraphTask(getSolver(), viewport, mTileCache, mPool, equations, buffers,
+                callbackExecutor, l);
+        (mExecutor != null ? mExecutor : Platforms.get().getBackgroundExecutor()).execute(newTask);
+        return newTask;
+    }
+
+    /**
+     * Hands a buffer from {@link OnGraphUpdatedListener#onGraphUpdated(PointBuffer)} back once it's
+     * no longer needed, so that the next graph can be drawn into it instead of a new one.
+     */
+    public void releaseBuffer(PointBuffer buffer) {
+        mRecycledBuffer = buffer;
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public interface OnGraphUpdatedListener {
+        void onGraphUpdated(List<Point> result);
+
+        /**
+         * Called with the graphed points. By default, this copies every point except the breaks
+         * between lines into a List for {@link #onGraphUpdated(List)}, since older listeners draw
+         * it as a single line. Override it to read the points without creating a Point for each
+         * one, and to see where the curve breaks.
+         */
+        default void onGraphUpdated(PointBuffer result) {
+            if (result == null) {
+                onGraphUpdated((List<Point>) null);
+                return;
+            }
+
+            List<Point> points = new ArrayList<>(result.size());
+            for (int i = 0; i < result.size(); i++) {
+                if (!result.isBreak(i)) {
+                    points.add(new Point(result.getX(i), result.getY(i)));
+                }
+            }
+            onGraphUpdated(points);
+        }
+    }
+
+    public interface OnGraphsUpdatedListener {
+        /**
+         * Called with one series per equation, in the order the equations were given.
+         */
+        void onGraphsUpdated(List<PointBuffer> results);
+    }
+
+    /**
+     * Graphs equations in the background. The curves themselves are evaluated in chunks on a
+     * ForkJoinPool, and every chunk checks {@link #isCancelled()} as it goes, so cancelling the task
+     * stops all of them.
+     */
+    public static final class GraphTask implements Runnable, Cancellable {
+        private final Solver mSolver;
+        // Graphs are drawn off the main thread. They compile with their own symbols so that they
+        // never race with equations solved on the main thread. Variables defined on the Solver
+        // are copied in when the task is created.
+        private final Symbols mSymbols = new Symbols();
+        // Which definitions were copied, so that curves sampled with other values aren't reused
+        private final int mDefinitions;
+        private final OnGraphsUpdatedListener mListener;
+        private final Viewport mViewport;
+        private final TileCache mTileCache;
+        private final ForkJoinPool mPool;
+        private final String[] mEquations;
+        private final List<PointBuffer> mSeries;
+        private final Executor mCallbackExecutor;
+        private volatile boolean mCancelled;
+
+        GraphTask(Solver solver, Viewport viewport, TileCache tileCache, ForkJoinPool pool,
+                  String[] equations, List<PointBuffer> buffers, Executor callbackExecutor,
+                  OnGraphsUpdatedListener l) {
+            mSolver = solver;
+            mSolver.copyDefinitions(mSymbols);
+            mDefinitions = mSolver.getDefinitionsVersion();
+            mViewport = viewport;
+            mTileCache = tileCache;
+            mPool = pool;
+            mEquations = equations;
+            mSeries = buffers;
+            mCallbackExecutor = callbackExecutor;
+            mListener = l;
+        }
+
+        /**
+         * Stops the graph. Its listener won't be called.
+         *
+         * @param mayInterruptIfRunning Ignored. Work in progress always stops at the next
+         *                              point it checks for cancellation.
+         * @return false if the graph was already cancelled.
+         */
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean wasCancelled = mCancelled;
+            mCancelled = true;
+            return !wasCancelled;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return mCancelled;
+        }
+
+        @Override
+        public void run() {
+            if (isCancelled()) {
+                return;
+            }
+
+            final List<PointBuffer> result = graph(mEquations);
+            if (isCancelled()) {
+                return;
+            }
+            mCallbackExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (!isCancelled()) {
+                        mListener.onGraphsUpdated(result);
+                    }
+                }
+            });
+        }
+
+        private List<PointBuffer> graph(String... eq) {
+            // Explicit curves are gathered up and sampled together at the end
+            List<TileCache.Curve> curves = new ArrayList<>();
+            boolean anyParsed = false;
+            for (int i = 0; i < eq.length; i++) {
+                if (eq[i] == null) {
+                    continue;
+                }
+
+                String[] equations = eq[i].split("=");
+                try {
+                    if (equations.length >= 2) {
+                        String leftEquation = mSolver.getBaseModule().changeBase(equations[0],
+                                mSolver.getBaseModule().getBase(), Base.DECIMAL);
+                        String rightEquation = mSolver.getBaseModule().changeBase(equations[1],
+                                mSolver.getBaseModule().getBase(), Base.DECIMAL);
+                        anyParsed = true;
+                        if (!graph(leftEquation, rightEquation, mSeries.get(i), curves)) {
+                            return null;
+                        }
+                    } else {
+                        String equation = mSolver.getBaseModule().changeBase(eq[i],
+                                mSolver.getBaseModule().getBase(), Base.DECIMAL);
+                        anyParsed = true;
+                        graph(equation, mSeries.get(i), curves);
+                    }
+                } catch (SyntaxException e) {
+                    e.printStackTrace();
+                }
+            }
+
+            if (!anyParsed) {
+                cancel(true);
+                return null;
+            }
+
+            if (!mTileCache.sample(curves, mViewport.getMaxSamples(), this, mPool)) {
+                return null;
+            }
+            return mSeries;
+        }
+
+        /**
+         * Graphs y = f(x). The curve is sampled later, along with every other explicit curve.
+         */
+        private void graph(String equation, PointBuffer series, List<TileCache.Curve> curves) {
+            try {
+                curves.add(curveX(equation, series));
+            } catch (SyntaxException e) {
+                e.printStackTrace();
+            }
+        }
+
+        /**
+         * Graphs leftEquation = rightEquation. Explicit curves are sampled later, along with every
+         * other explicit curve. Implicit curves are traced now.
+         *
+         * @return false if the work was cancelled before it finished.
+         */
+        private boolean graph(String leftEquation, String rightEquation, PointBuffer series,
+                              List<TileCache.Curve> curves) {
+            try {
+                if (leftEquation.equals(Y) && !rightEquation.contains(Y)) {
+                    curves.add(curveX(rightEquation, series));
+                } else if (leftEquation.equals(X) && !rightEquation.contains(X)) {
+                    curves.add(curveY(rightEquation, series));
+                } else if (rightEquation.equals(Y) && !leftEquation.contains(Y)) {
+                    curves.add(curveX(leftEquation, series));
+                } else if (rightEquation.equals(X) && !leftEquation.contains(X)) {
+                    curves.add(curveY(leftEquation, series));
+                } else {
+                    // Both sides are folded into one function, and the curve is wherever it's 0
+                    Function function = compile("(" + leftEquation + ")-(" + rightEquation + ")", X, Y);
+                    MarchingSquares contour = new MarchingSquares(function,
+                            mViewport.getMinX(), mViewport.getMaxX(),
+                            mViewport.getMinY(), mViewport.getMaxY(),
+                            mViewport.getStep());
+                    return contour.trace(series, this, mPool);
+                }
+            } catch (SyntaxException e) {
+                e.printStackTrace();
+            }
+            return true;
+        }
+
+        /**
+         * Describes y = f(x) across the domain.
+         */
+        private TileCache.Curve curveX(String equation, PointBuffer series) throws SyntaxException {
+            return new TileCache.Curve(equation, mDefinitions, compile(equation, X),
+                    mViewport.getPixelWidth(), mViewport.getPixelHeight(), false,
+                    mViewport.getMinX(), mViewport.getMaxX(), series);
+        }
+
+        /**
+         * Describes x = f(y) across the range.
+         */
+        private TileCache.Curve curveY(String equation, PointBuffer series) throws SyntaxException {
+            return new TileCache.Curve(equation, mDefinitions, compile(equation, Y),
+                    mViewport.getPixelHeight(), mViewport.getPixelWidth(), true,
+                    mViewport.getMinY(), mViewport.getMaxY(), series);
+        }
+
+        /**
+         * Compiles the equation into a function of the given variables. The function can then be
+         * evaluated for every point on the graph without parsing the equation again.
+         */
+        private Function compile(String equation, String... variables) throws SyntaxException {
+            StringBuilder definition = new StringBuilder("f(");
+            for (int i = 0; i < variables.length; i++) {
+                if (i > 0) definition.append(',');
+                definition.append(variables[i]);
+            }
+            definition.append(")=").append(equation);
+
+            try {
+                return mSymbols.compile(definition.toString());
+            } catch (org.javia.arity.SyntaxException e) {
+                throw SyntaxException.from(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package com.xlythe.math;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects timings into a histogram per stage, along with cache, error and matrix counts.
+ * <p>
+ * Timings are grouped into powers of two, so percentiles are accurate to within a factor of two.
+ * It's safe to share between Solvers on different threads, and to take snapshots while they're
+ * solving.
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public class HistogramMetrics implements SolverMetrics {
+    private static final SolverMetrics.Stage[] STAGES = SolverMetrics.Stage.values();
+
+    private final Histogram[] mHistograms = new Histogram[STAGES.length];
+    private final AtomicLongArray mErrors = new AtomicLongArray(STAGES.length);
+    private final LongAdder mCacheHits = new LongAdder();
+    private final LongAdder mCacheMisses = new LongAdder();
+    // Keyed by rows in the high bits and columns in the low bits
+    private final ConcurrentHashMap<Long, LongAdder> mMatrices = new ConcurrentHashMap<>();
+
+    public HistogramMetrics() {
+        for (int i = 0; i < mHistograms.length; i++) {
+            mHistograms[i] = new Histogram();
+        }
+    }
+
+    @Override
+    public void onStage(SolverMetrics.Stage stage, long nanos) {
+        mHistograms[stage.ordinal()].record(nanos);
+    }
+
+    @Override
+    public void onCacheHit() {
+        mCacheHits.increment();
+    }
+
+    @Override
+    public void onCacheMiss() {
+        mCacheMisses.increment();
+    }
+
+    @Override
+    public void onError(SolverMetrics.Stage stage, SyntaxException e) {
+        mErrors.incrementAndGet(stage.ordinal());
+    }
+
+    @Override
+    public void onMatrix(int rows, int columns) {
+        long key = ((long) rows << 32) | (columns & 0xFFFFFFFFL);
+        LongAdder count = mMatrices.get(key);
+        if (count == null) {
+            LongAdder newCount = new LongAdder();
+            count = mMatrices.putIfAbsent(key, newCount);
+            if (count == null) count = newCount;
+        }
+        count.increment();
+    }
+
+    /**
+     * Returns a copy of everything recorded so far.
+     */
+    public Snapshot snapshot() {
+        Timing[] timings = new Timing[STAGES.length];
+        long[] errors = new long[STAGES.length];
+        for (int i = 0; i < STAGES.length; i++) {
+            timings[i] = mHistograms[i].snapshot();
+            errors[i] = mErrors.get(i);
+        }
+
+        Map<String, Long> matrices = new TreeMap<>();
+        for (Map.Entry<Long, LongAdder> entry : mMatrices.entrySet()) {
+            long key = entry.getKey();
+            matrices.put((key >>> 32) + "x" + (int) key, entry.getValue().sum());
+        }
+
+        return new Snapshot(timings, errors, mCacheHits.sum(), mCacheMisses.sum(), matrices);
+    }
+
+    /**
+     * Forgets everything recorded so far.
+     */
+    public void reset() {
+        for (int i = 0; i < STAGES.length; i++) {
+            mHistograms[i].reset();
+            mErrors.set(i, 0);
+        }
+        mCacheHits.reset();
+        mCacheMisses.reset();
+        mMatrices.clear();
+    }
+
+    /**
+     * Counts durations by their highest set bit. Bucket i holds durations from
+     * 2^(i-1) up to 2^i, and bucket 0 holds zeros.
+     */
+    private static final class Histogram {
+        private final AtomicLongArray mBuckets = new AtomicLongArray(64);
+        private final LongAdder mCount = new LongAdder();
+        private final LongAdder mTotal = new LongAdder();
+        private final AtomicLong mMax = new AtomicLong();
+
+        void record(long nanos) {
+            if (nanos < 0) nanos = 0;
+            mBuckets.incrementAndGet(64 - Long.numberOfLeadingZeros(nanos));
+            mCount.increment();
+            mTotal.add(nanos);
+
+            long max = mMax.get();
+            while (nanos > max && !mMax.compareAndSet(max, nanos)) {
+                max = mMax.get();
+            }
+        }
+
+        Timing snapshot() {
+            long[] buckets = new long[mBuckets.length()];
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = mBuckets.get(i);
+            }
+            return new Timing(buckets, mCount.sum(), mTotal.sum(), mMax.get());
+        }
+
+        void reset() {
+            for (int i = 0; i < mBuckets.length(); i++) {
+                mBuckets.set(i, 0);
+            }
+            mCount.reset();
+            mTotal.reset();
+            mMax.set(0);
+        }
+    }
+
+    /**
+     * How long one stage took, over every time it ran.
+     */
+    public static final class Timing {
+        private final long[] mBuckets;
+        private final long mCount;
+        private final long mTotal;
+        private final long mMax;
+
+        Timing(long[] buckets, long count, long total, long max) {
+            mBuckets = buckets;
+            mCount = count;
+            mTotal = total;
+            mMax = max;
+        }
+
+        public long getCount() {
+            return mCount;
+        }
+
+        public long getTotalNanos() {
+            return mTotal;
+        }
+
+        public long getMaxNanos() {
+            return mMax;
+        }
+
+        public double getMeanNanos() {
+            return mCount == 0 ? 0 : (double) mTotal / mCount;
+        }
+
+        /**
+         * Returns a duration that the given fraction of runs, between 0 and 1, finished within.
+         */
+        public long getPercentileNanos(double fraction) {
+            if (mCount == 0) return 0;
+
+            long rank = (long) Math.ceil(fraction * mCount);
+            long seen = 0;
+            for (int i = 0; i < mBuckets.length; i++) {
+                seen += mBuckets[i];
+                if (seen >= rank && seen > 0) {
+                    long upper = i == 0 ? 0 : i >= 63 ? Long.MAX_VALUE : (1L << i) - 1;
+                    return Math.min(upper, mMax);
+                }
+            }
+            return mMax;
+        }
+    }
+
+    /**
+     * Everything a HistogramMetrics recorded up to a point in time. Solvers still running when
+     * it's taken may leave the counters slightly out of step with each other.
+     */
+    public static final class Snapshot {
+        private final Timing[] mTimings;
+        private final long[] mErrors;
+        private final long mCacheHits;
+        private final long mCacheMisses;
+        private final Map<String, Long> mMatrices;
+
+        Snapshot(Timing[] timings, long[] errors, long cacheHits, long cacheMisses, Map<String, Long> matrices) {
+            mTimings = timings;
+            mErrors = errors;
+            mCacheHits = cacheHits;
+            mCacheMisses = cacheMisses;
+            mMatrices = Collections.unmodifiableMap(matrices);
+        }
+
+        public Timing getTiming(SolverMetrics.Stage stage) {
+            return mTimings[stage.ordinal()];
+        }
+
+        public long getErrorCount(SolverMetrics.Stage stage) {
+            return mErrors[stage.ordinal()];
+        }
+
+        public long getCacheHitCount() {
+            return mCacheHits;
+        }
+
+        public long getCacheMissCount() {
+            return mCacheMisses;
+        }
+
+        /**
+         * Returns how many matrices of each size were seen, keyed like "2x3" for 2 rows and 3
+         * columns.
+         */
+        public Map<String, Long> getMatrixCounts() {
+            return mMatrices;
+        }
+
+        /**
+         * Returns a table of every stage that ran, followed by the counters.
+         */
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder();
+            builder.append(String.format("%-18s %8s %10s %10s %10s %10s %7s%n",
+                    "stage", "count", "mean ns", "p50 ns", "p99 ns", "max ns", "errors"));
+            for (SolverMetrics.Stage stage : STAGES) {
+                Timing timing = getTiming(stage);
+                long errors = getErrorCount(stage);
+                if (timing.getCount() == 0 && errors == 0) continue;
+                builder.append(String.format("%-18s %8d %10.0f %10d %10d %10d %7d%n",
+                        stage, timing.getCount(), timing.getMeanNanos(),
+                        timing.getPercentileNanos(0.5), timing.getPercentileNanos(0.99),
+                        timing.getMaxNanos(), errors));
+            }
+            builder.append("cache hits ").append(mCacheHits)
+                    .append(", misses ").append(mCacheMisses).append('\n');
+            if (!mMatrices.isEmpty()) {
+                builder.append("matrices ").append(mMatrices).append('\n');
+            }
+            return builder.toString();
+        }
+    }
+}
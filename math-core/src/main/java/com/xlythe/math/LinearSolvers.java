@@ -0,0 +1,283 @@
+package com.xlythe.math;
+
+import org.ejml.UtilEjml;
+import org.ejml.data.DMatrixRMaj;
+import org.ejml.data.DMatrixSparseCSC;
+import org.ejml.dense.row.CommonOps_DDRM;
+import org.ejml.dense.row.CommonOps_MT_DDRM;
+import org.ejml.dense.row.MatrixFeatures_DDRM;
+import org.ejml.dense.row.decomposition.lu.LUDecompositionBase_DDRM;
+import org.ejml.dense.row.decomposition.qr.QRDecompositionHouseholderColumn_DDRM;
+import org.ejml.dense.row.factory.DecompositionFactory_MT_DDRM;
+import org.ejml.dense.row.factory.LinearSolverFactory_DDRM;
+import org.ejml.dense.row.factory.LinearSolverFactory_MT_DDRM;
+import org.ejml.interfaces.decomposition.DecompositionInterface;
+import org.ejml.interfaces.decomposition.SingularValueDecomposition_F64;
+import org.ejml.interfaces.linsol.LinearSolverDense;
+import org.ejml.interfaces.linsol.LinearSolverSparse;
+import org.ejml.ops.DConvertMatrixStruct;
+import org.ejml.sparse.FillReducing;
+import org.ejml.sparse.csc.CommonOps_DSCC;
+import org.ejml.sparse.csc.factory.LinearSolverFactory_DSCC;
+
+/**
+ * Inverts and divides matrices with the cheapest solver that works for them. Cholesky is used
+ * for large symmetric positive-definite matrices, LU for other square matrices, and QR for tall
+ * ones.
+ * Singular and wide matrices fall back to a pseudo-inverse through SVD. Cholesky, QR and SVD run
+ * on several threads for matrices past the MatrixModule's concurrency threshold; EJML has no
+ * concurrent LU.
+ * <p>
+ * Square sparse matrices are solved with sparse LU. Anything that fails falls back to the dense
+ * solvers.
+ * <p>
+ * Solvers are kept between calls so that their work buffers are reused. Like the MatrixModule
+ * that owns it, this is not thread safe.
+ */
+final class LinearSolvers {
+    // How far apart mirrored elements may be for a matrix to count as symmetric
+    private static final double SYMMETRIC_TOLERANCE = 1e-12;
+    // Smaller matrices use LU even if they're positive-definite. Cholesky takes square roots, so
+    // it rounds simple inputs like [[2,0][0,4]] that LU inverts exactly, and the time it saves
+    // only matters for large matrices.
+    private static final int CHOLESKY_MIN_SIZE = 16;
+
+    private final MatrixModule mModule;
+    private LinearSolverDense<DMatrixRMaj> mCholesky;
+    private LinearSolverDense<DMatrixRMaj> mLu;
+    private LinearSolverDense<DMatrixRMaj> mQr;
+    private LinearSolverDense<DMatrixRMaj> mSvd;
+    private LinearSolverSparse<DMatrixSparseCSC, DMatrixRMaj> mSparseLu;
+    // The sizes the solvers were made for. EJML picks different algorithms for large matrices.
+    private int mCholeskySize;
+    private boolean mCholeskyConcurrent;
+    private int mLuSize;
+    private int mQrRows;
+    private int mQrColumns;
+    private boolean mQrConcurrent;
+    // Holds R while checking if a QR decomposition is singular
+    private final DMatrixRMaj mTriangular = new DMatrixRMaj(1, 1);
+
+    LinearSolvers(MatrixModule module) {
+        mModule = module;
+    }
+
+    /**
+     * Returns the inverse of a square matrix, or the pseudo-inverse of any other matrix. The
+     * matrix may be modified.
+     */
+    DMatrixRMaj invert(DMatrixRMaj a) {
+        DMatrixRMaj inverse = new DMatrixRMaj(a.numCols, a.numRows);
+        LinearSolverDense<DMatrixRMaj> solver = pick(a);
+        if (solver != null) {
+            if (a.numRows == a.numCols) {
+                solver.invert(inverse);
+            } else {
+                solver.solve(CommonOps_DDRM.identity(a.numRows), inverse);
+            }
+            if (!MatrixFeatures_DDRM.hasUncountable(inverse)) return inverse;
+        }
+
+        return pseudoInverse(a);
+    }
+
+    /**
+     * Returns a times the inverse of b, without computing the inverse. Both matrices need the
+     * same number of columns, and may be modified.
+     */
+    DMatrixRMaj divide(DMatrixRMaj a, DMatrixRMaj b) {
+        // X B = A is the same as B^T X^T = A^T
+        DMatrixRMaj bt = CommonOps_DDRM.transpose(b, null);
+        DMatrixRMaj at = CommonOps_DDRM.transpose(a, null);
+        DMatrixRMaj xt = new DMatrixRMaj(bt.numCols, at.numCols);
+
+        LinearSolverDense<DMatrixRMaj> solver = pick(bt);
+        if (solver != null) {
+            solver.solve(solver.modifiesB() ? at.copy() : at, xt);
+            if (!MatrixFeatures_DDRM.hasUncountable(xt)) return CommonOps_DDRM.transpose(xt, null);
+        }
+
+        DMatrixRMaj inverse = pseudoInverse(bt);
+        if (mModule.isConcurrent(inverse.numRows, inverse.numCols, at.numCols)) {
+            CommonOps_MT_DDRM.mult(inverse, at, xt);
+        } else {
+            CommonOps_DDRM.mult(inverse, at, xt);
+        }
+        return CommonOps_DDRM.transpose(xt, null);
+    }
+
+    /**
+     * Returns the inverse of a sparse matrix, like {@link #invert(DMatrixRMaj)}. Inverses are
+     * rarely sparse, so it's returned dense.
+     */
+    DMatrixRMaj invert(DMatrixSparseCSC a) {
+        if (a.numRows == a.numCols) {
+            DMatrixRMaj inverse = new DMatrixRMaj(a.numRows, a.numCols);
+            if (solveSparse(a, CommonOps_DDRM.identity(a.numRows), inverse)) return inverse;
+        }
+        return invert(DConvertMatrixStruct.convert(a, (DMatrixRMaj) null));
+    }
+
+    /**
+     * Returns a times the inverse of the sparse matrix b, like
+     * {@link #divide(DMatrixRMaj, DMatrixRMaj)}. The result is dense.
+     */
+    DMatrixRMaj divide(DMatrixRMaj a, DMatrixSparseCSC b) {
+        if (b.numRows == b.numCols) {
+            DMatrixSparseCSC bt = CommonOps_DSCC.transpose(b, null, null);
+            DMatrixRMaj at = CommonOps_DDRM.transpose(a, null);
+            DMatrixRMaj xt = new DMatrixRMaj(bt.numCols, at.numCols);
+            if (solveSparse(bt, at, xt)) return CommonOps_DDRM.transpose(xt, null);
+        }
+        return divide(a, DConvertMatrixStruct.convert(b, (DMatrixRMaj) null));
+    }
+
+    /**
+     * Solves A X = B with sparse LU. Returns false if A is singular, leaving X undefined.
+     * Neither A nor B is modified.
+     */
+    private boolean solveSparse(DMatrixSparseCSC a, DMatrixRMaj b, DMatrixRMaj x) {
+        if (mSparseLu == null) {
+            // Fill-reducing orderings only pay off for much larger matrices than people type
+            mSparseLu = LinearSolverFactory_DSCC.lu(FillReducing.NONE);
+        }
+        if (!mSparseLu.setA(mSparseLu.modifiesA() ? a.copy() : a)) return false;
+        mSparseLu.solve(mSparseLu.modifiesB() ? b.copy() : b, x);
+        return !MatrixFeatures_DDRM.hasUncountable(x);
+    }
+
+    /**
+     * Returns a solver that's been given the matrix, or null if only a pseudo-inverse will do.
+     * The matrix isn't modified.
+     */
+    private LinearSolverDense<DMatrixRMaj> pick(DMatrixRMaj a) {
+        int m = a.numRows;
+        int n = a.numCols;
+        if (m == n) {
+            if (n >= CHOLESKY_MIN_SIZE && hasPositiveDiagonal(a)
+                    && MatrixFeatures_DDRM.isSymmetric(a, SYMMETRIC_TOLERANCE)) {
+                // Fails unless the matrix is positive-definite
+                if (setA(cholesky(n), a)) return mCholesky;
+            }
+            if (setA(lu(n), a) && !isSingular(mLu, m, n)) return mLu;
+        } else if (m > n) {
+            if (setA(qr(m, n), a) && !isSingular(mQr, m, n)) return mQr;
+        }
+        return null;
+    }
+
+    private static boolean setA(LinearSolverDense<DMatrixRMaj> solver, DMatrixRMaj a) {
+        return solver.setA(solver.modifiesA() ? a.copy() : a);
+    }
+
+    /**
+     * Checks the diagonal of the triangular factor. A matrix is treated as singular if its
+     * smallest pivot is within rounding error of its largest.
+     */
+    private boolean isSingular(LinearSolverDense<DMatrixRMaj> solver, int rows, int columns) {
+        DecompositionInterface<?> decomposition = solver.getDecomposition();
+        DMatrixRMaj triangular;
+        if (decomposition instanceof LUDecompositionBase_DDRM) {
+            triangular = ((LUDecompositionBase_DDRM) decomposition).getLU();
+        } else if (decomposition instanceof QRDecompositionHouseholderColumn_DDRM) {
+            mTriangular.reshape(columns, columns);
+            triangular = ((QRDecompositionHouseholderColumn_DDRM) decomposition).getR(mTriangular, true);
+        } else {
+            // Block decompositions, used for very large matrices, are only checked once solved
+            return false;
+        }
+
+        double min = Double.POSITIVE_INFINITY;
+        double max = 0;
+        for (int i = 0; i < columns; i++) {
+            double pivot = Math.abs(triangular.unsafe_get(i, i));
+            min = Math.min(min, pivot);
+            max = Math.max(max, pivot);
+        }
+        return min <= max * Math.max(rows, columns) * UtilEjml.EPS;
+    }
+
+    private static boolean hasPositiveDiagonal(DMatrixRMaj a) {
+        for (int i = 0; i < a.numRows; i++) {
+            if (!(a.unsafe_get(i, i) > 0)) return false;
+        }
+        return true;
+    }
+
+    private LinearSolverDense<DMatrixRMaj> cholesky(int size) {
+        boolean concurrent = mModule.isConcurrent(size, size, size);
+        if (mCholesky == null || mCholeskySize != size || mCholeskyConcurrent != concurrent) {
+            mCholesky = concurrent
+                    ? LinearSolverFactory_MT_DDRM.chol(size)
+                    : LinearSolverFactory_DDRM.chol(size);
+            mCholeskySize = size;
+            mCholeskyConcurrent = concurrent;
+        }
+        return mCholesky;
+    }
+
+    private LinearSolverDense<DMatrixRMaj> lu(int size) {
+        if (mLu == null || mLuSize != size) {
+            mLu = LinearSolverFactory_DDRM.lu(size);
+            mLuSize = size;
+        }
+        return mLu;
+    }
+
+    private LinearSolverDense<DMatrixRMaj> qr(int rows, int columns) {
+        boolean concurrent = mModule.isConcurrent(rows, columns, columns);
+        if (mQr == null || mQrRows != rows || mQrColumns != columns || mQrConcurrent != concurrent) {
+            mQr = concurrent
+                    ? LinearSolverFactory_MT_DDRM.leastSquares(rows, columns)
+                    : LinearSolverFactory_DDRM.leastSquares(rows, columns);
+            mQrRows = rows;
+            mQrColumns = columns;
+            mQrConcurrent = concurrent;
+        }
+        return mQr;
+    }
+
+    /**
+     * Returns the pseudo-inverse of a matrix through SVD. The matrix may be modified.
+     */
+    private DMatrixRMaj pseudoInverse(DMatrixRMaj a) {
+        int m = a.numRows;
+        int n = a.numCols;
+        DMatrixRMaj inverse = new DMatrixRMaj(n, m);
+        if (!mModule.isConcurrent(m, n, Math.min(m, n))) {
+            if (mSvd == null) {
+                mSvd = LinearSolverFactory_DDRM.pseudoInverse(true);
+            }
+            mSvd.setA(a);
+            mSvd.invert(inverse);
+            return inverse;
+        }
+
+        // EJML's pseudo-inverse solver always decomposes on one thread, so it's built here from
+        // the concurrent SVD instead, as V W^+ U^T
+        SingularValueDecomposition_F64<DMatrixRMaj> svd = DecompositionFactory_MT_DDRM.svd(m, n, true, true, true);
+        if (!svd.decompose(a)) {
+            CommonOps_DDRM.fill(inverse, Double.NaN);
+            return inverse;
+        }
+        DMatrixRMaj u = svd.getU(null, false);
+        DMatrixRMaj v = svd.getV(null, false);
+        double[] singularValues = svd.getSingularValues();
+        int count = svd.numberOfSingularValues();
+
+        // Singular values within rounding error of 0 are dropped, as EJML's solver does
+        double max = 0;
+        for (int i = 0; i < count; i++) {
+            max = Math.max(max, singularValues[i]);
+        }
+        double tolerance = UtilEjml.EPS * Math.max(m, n) * max;
+        for (int j = 0; j < count; j++) {
+            double scale = singularValues[j] > tolerance ? 1 / singularValues[j] : 0;
+            for (int i = 0; i < n; i++) {
+                v.unsafe_set(i, j, v.unsafe_get(i, j) * scale);
+            }
+        }
+        CommonOps_MT_DDRM.multTransB(v, u, inverse);
+        return inverse;
+    }
+}
@@ -1,68 +1,46 @@
 package com.xlythe.math;
 
-import android.content.Context;
-import android.util.Log;
-
-import java.lang.reflect.Field;
 import java.util.HashMap;
 import java.util.Map;
 
 /**
  * Translates an equation typed in the default locale back into English
  * <p>
- * This assumes the app has English translations
+ * Translations are added for function names (like "sin"), "." for the decimal point and "," for
+ * the matrix separator. On Android, ResourceLocalizer reads them from an app's string resources.
  */
-@SuppressWarnings({"WeakerAccess", "unused", "StatementWithEmptyBody"})
+@SuppressWarnings({"WeakerAccess", "unused"})
 public class Localizer {
-    private static final String TAG = Localizer.class.getSimpleName();
     private final Map<String, String> mMap = new HashMap<>();
     private boolean mUseDegrees = false;
+    // Changes whenever a translation is added, so that Solvers know which cached equations are
+    // stale
+    private int mVersion;
+
+    public Localizer() {}
 
-    public Localizer(Context context, Class r) {
-        buildResourceMap(context, r);
+    public Localizer(Map<String, String> translations) {
+        mMap.putAll(translations);
     }
 
-    @SuppressWarnings("rawtypes")
-    public void buildResourceMap(Context context, Class r) {
-        try {
-            Log.d("Localizer", "Building resource map");
-            Class color = Class.forName(r.getName() + "$string");
-            for (Field f : color.getFields()) {
-                if (detect(context, f, "asin")) ;
-                else if (detect(context, f, "acos")) ;
-                else if (detect(context, f, "atan")) ;
-                else if (detect(context, f, "sin")) ;
-                else if (detect(context, f, "cos")) ;
-                else if (detect(context, f, "tan")) ;
-                else if (detect(context, f, "log")) ;
-                else if (detect(context, f, "ln")) ;
-                else if (detect(context, f, "det")) ;
-                else if (detect(context, f, "cbrt")) ;
-                else if (f.getName().toLowerCase().contains("dot") || f.getName().toLowerCase().contains("decimal")) {
-                    mMap.put(".", context.getString(f.getInt(null)));
-                } else if (f.getName().toLowerCase().contains("matrix") && f.getName().toLowerCase().contains("separator")) {
-                    mMap.put(",", context.getString(f.getInt(null)));
-                }
-            }
-        } catch (IllegalArgumentException e) {
-            Log.e(TAG, "Should never happen", e);
-        } catch (IllegalAccessException e) {
-            Log.e(TAG, "Should never happen", e);
-        } catch (ClassNotFoundException e) {
-            // Do nothing. Happens if no Strings are found.
-        }
+    /**
+     * Adds the translation of a word, like "sen" for "sin".
+     */
+    public void addTranslation(String word, String translation) {
+        mMap.put(word, translation);
+        mVersion++;
     }
 
     public void setUseDegrees(boolean useDegrees) {
         mUseDegrees = useDegrees;
     }
 
-    private boolean detect(Context context, Field f, String phrase) throws IllegalAccessException {
-        if (f.getName().toLowerCase().contains(phrase)) {
-            mMap.put(phrase, context.getString(f.getInt(null)));
-            return true;
-        }
-        return false;
+    boolean isUsingDegrees() {
+        return mUseDegrees;
+    }
+
+    int getVersion() {
+        return mVersion;
     }
 
     /**
@@ -0,0 +1,40 @@
+package com.xlythe.math;
+
+/**
+ * Logs through the current {@link Logger}. By default, that's the platform's logger: Logcat on
+ * Android, and java.util.logging elsewhere.
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public final class Log {
+    private static volatile Logger sLogger;
+
+    private Log() {}
+
+    /**
+     * Sends every log message from now on to the given logger.
+     */
+    public static void setLogger(Logger logger) {
+        sLogger = logger;
+    }
+
+    public static Logger getLogger() {
+        Logger logger = sLogger;
+        if (logger == null) {
+            logger = Platforms.get().getLogger();
+            sLogger = logger;
+        }
+        return logger;
+    }
+
+    public static void d(String tag, String message) {
+        getLogger().d(tag, message);
+    }
+
+    public static void e(String tag, String message) {
+        getLogger().e(tag, message, null);
+    }
+
+    public static void e(String tag, String message, Throwable throwable) {
+        getLogger().e(tag, message, throwable);
+    }
+}
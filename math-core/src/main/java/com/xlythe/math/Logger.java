@@ -0,0 +1,13 @@
+package com.xlythe.math;
+
+/**
+ * Where the library's log messages go. Set one with {@link Log#setLogger(Logger)}.
+ */
+public interface Logger {
+    void d(String tag, String message);
+
+    /**
+     * @param throwable The cause of the error. May be null.
+     */
+    void e(String tag, String message, Throwable throwable);
+}
@@ -0,0 +1,375 @@
+package com.xlythe.math;
+
+import org.javia.arity.Function;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Traces the curve f(x, y) = 0 with marching squares.
+ * <p>
+ * f is evaluated once at every vertex of a grid. Each grid cell whose corners change sign holds a
+ * piece of the curve, found by interpolating along the cell's edges. Neighbouring cells share an
+ * edge, and pieces that meet on the same edge are joined into lines as they're written out.
+ * <p>
+ * The grid is cut into horizontal bands that are marched in parallel. Pieces are only joined once
+ * every band is done, so lines that cross from one band into the next are still whole.
+ */
+class MarchingSquares {
+    // The number of rows of cells in each band
+    private static final int BAND_ROWS = 16;
+
+    private final Function mFunction;
+    private final float mMinX;
+    private final float mMinY;
+    private final float mStep;
+    private final int mColumns;
+    private final int mRows;
+    private final int mBandRows;
+
+    // Every piece found, once the bands are merged. Each one has two ends, and each end sits on a
+    // grid edge.
+    private int[] mEdges;
+    private float[] mPoints;
+    private int mEnds;
+
+    /**
+     * @param function A function of x and y that is 0 on the curve.
+     * @param step     The width and height of a grid cell.
+     */
+    MarchingSquares(Function function, float minX, float maxX, float minY, float maxY, float step) {
+        this(function, minX, maxX, minY, maxY, step, BAND_ROWS);
+    }
+
+    /**
+     * @param bandRows The number of rows of cells in each band.
+     */
+    MarchingSquares(Function function, float minX, float maxX, float minY, float maxY, float step,
+                    int bandRows) {
+        mFunction = function;
+        mMinX = minX;
+        mMinY = minY;
+        mStep = step;
+        mColumns = Math.max(1, (int) Math.ceil((maxX - minX) / step));
+        mRows = Math.max(1, (int) Math.ceil((maxY - minY) / step));
+        mBandRows = Math.max(1, Math.min(bandRows, mRows));
+    }
+
+    /**
+     * Writes the curve into the buffer, with a break after every line.
+     *
+     * @return false if the work was cancelled before it finished.
+     */
+    boolean trace(PointBuffer out, Cancellable cancellable, ForkJoinPool pool) {
+        List<Band> bands = new ArrayList<>();
+        for (int row = 0; row < mRows; row += mBandRows) {
+            bands.add(new Band(row, Math.min(row + mBandRows, mRows), cancellable));
+        }
+
+        if (bands.size() == 1) {
+            bands.get(0).compute();
+        } else {
+            pool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(bands);
+                }
+            });
+        }
+        if (cancellable.isCancelled()) {
+            return false;
+        }
+
+        merge(bands);
+        join(out);
+        return true;
+    }
+
+    /**
+     * Gathers the pieces found by every band, in order. Each band holds whole pieces, so ends 2n
+     * and 2n+1 still belong to the same piece afterwards.
+     */
+    private void merge(List<Band> bands) {
+        int ends = 0;
+        for (Band band : bands) {
+            ends += band.mEnds;
+        }
+
+        mEdges = new int[ends];
+        mPoints = new float[ends * 2];
+        mEnds = 0;
+        for (Band band : bands) {
+            System.arraycopy(band.mEdges, 0, mEdges, mEnds, band.mEnds);
+            System.arraycopy(band.mPoints, 0, mPoints, mEnds * 2, band.mEnds * 2);
+            mEnds += band.mEnds;
+        }
+    }
+
+    /**
+     * Marches the cells between two rows of grid vertices. Each band evaluates with its own context,
+     * and the row of vertices it shares with the band below is evaluated by both.
+     */
+    @SuppressWarnings("serial")
+    private final class Band extends RecursiveAction {
+        private final Evaluator mEvaluator = new Evaluator(mFunction);
+        private final int mFromRow;
+        private final int mToRow;
+        private final Cancellable mCancellable;
+
+        private int[] mEdges = new int[64];
+        private float[] mPoints = new float[128];
+        private int mEnds;
+
+        Band(int fromRow, int toRow, Cancellable cancellable) {
+            mFromRow = fromRow;
+            mToRow = toRow;
+            mCancellable = cancellable;
+        }
+
+        @Override
+        protected void compute() {
+            if (mCancellable.isCancelled()) {
+                return;
+            }
+
+            double[] below = new double[mColumns + 1];
+            double[] above = new double[mColumns + 1];
+            evaluateRow(mFromRow, below);
+            for (int row = mFromRow + 1; row <= mToRow; row++) {
+                if (mCancellable.isCancelled()) {
+                    return;
+                }
+
+                evaluateRow(row, above);
+                for (int column = 0; column < mColumns; column++) {
+                    march(column, row, below[column], below[column + 1], above[column + 1], above[column]);
+                }
+
+                double[] temp = below;
+                below = above;
+                above = temp;
+            }
+        }
+
+        private void evaluateRow(int row, double[] values) {
+            float y = mMinY + row * mStep;
+            for (int column = 0; column <= mColumns; column++) {
+                values[column] = mEvaluator.eval(mMinX + column * mStep, y);
+            }
+        }
+
+        /**
+         * Finds the pieces of the curve inside a single cell. The corners are given counter clockwise,
+         * starting from the bottom left.
+         */
+        private void march(int column, int row, double bottomLeft, double bottomRight, double topRight, double topLeft) {
+            if (!isFinite(bottomLeft) || !isFinite(bottomRight) || !isFinite(topRight) || !isFinite(topLeft)) {
+                return;
+            }
+
+            int state = (bottomLeft > 0 ? 1 : 0)
+                    | (bottomRight > 0 ? 2 : 0)
+                    | (topRight > 0 ? 4 : 0)
+                    | (topLeft > 0 ? 8 : 0);
+
+            final int bottom = 0;
+            final int right = 1;
+            final int top = 2;
+            final int left = 3;
+            switch (state) {
+                case 0:
+                case 15:
+                    // The curve doesn't pass through this cell
+                    return;
+                case 1:
+                case 14:
+                    connect(column, row, left, bottom, bottomLeft, bottomRight, topRight, topLeft);
+                    return;
+                case 2:
+                case 13:
+                    connect(column, row, bottom, right, bottomLeft, bottomRight, topRight, topLeft);
+                    return;
+                case 3:
+                case 12:
+                    connect(column, row, left, right, bottomLeft, bottomRight, topRight, topLeft);
+                    return;
+                case 4:
+                case 11:
+                    connect(column, row, right, top, bottomLeft, bottomRight, topRight, topLeft);
+                    return;
+                case 6:
+                case 9:
+                    connect(column, row, bottom, top, bottomLeft, bottomRight, topRight, topLeft);
+                    return;
+                case 7:
+                case 8:
+                    connect(column, row, left, top, bottomLeft, bottomRight, topRight, topLeft);
+                    return;
+                case 5:
+                case 10:
+                    // A saddle. Opposite corners share a sign, and the value in the middle decides
+                    // which pair of corners the curve separates.
+                    boolean centerMatchesBottomLeft = (bottomLeft + bottomRight + topRight + topLeft > 0) == (bottomLeft > 0);
+                    if (centerMatchesBottomLeft) {
+                        connect(column, row, bottom, right, bottomLeft, bottomRight, topRight, topLeft);
+                        connect(column, row, left, top, bottomLeft, bottomRight, topRight, topLeft);
+                    } else {
+                        connect(column, row, left, bottom, bottomLeft, bottomRight, topRight, topLeft);
+                        connect(column, row, right, top, bottomLeft, bottomRight, topRight, topLeft);
+                    }
+            }
+        }
+
+        /**
+         * Records a piece of the curve that crosses the two given sides of a cell.
+         */
+        private void connect(int column, int row, int from, int to,
+                             double bottomLeft, double bottomRight, double topRight, double topLeft) {
+            int start = mEnds;
+            if (!addEnd(column, row, from, bottomLeft, bottomRight, topRight, topLeft)
+                    || !addEnd(column, row, to, bottomLeft, bottomRight, topRight, topLeft)) {
+                // Only keep pieces where both ends are on the curve
+                mEnds = start;
+            }
+        }
+
+        private boolean addEnd(int column, int row, int side,
+                               double bottomLeft, double bottomRight, double topRight, double topLeft) {
+            float x0 = mMinX + column * mStep;
+            float y0 = mMinY + (row - 1) * mStep;
+            float x;
+            float y;
+            double a;
+            double b;
+            int edge;
+            switch (side) {
+                case 0: // bottom
+                    a = bottomLeft;
+                    b = bottomRight;
+                    x = x0 + interpolate(a, b) * mStep;
+                    y = y0;
+                    edge = horizontalEdge(column, row - 1);
+                    break;
+                case 1: // right
+                    a = bottomRight;
+                    b = topRight;
+                    x = x0 + mStep;
+                    y = y0 + interpolate(a, b) * mStep;
+                    edge = verticalEdge(column + 1, row);
+                    break;
+                case 2: // top
+                    a = topLeft;
+                    b = topRight;
+                    x = x0 + interpolate(a, b) * mStep;
+                    y = y0 + mStep;
+                    edge = horizontalEdge(column, row);
+                    break;
+                default: // left
+                    a = bottomLeft;
+                    b = topLeft;
+                    x = x0;
+                    y = y0 + interpolate(a, b) * mStep;
+                    edge = verticalEdge(column, row);
+                    break;
+            }
+
+            // A sign change can also come from an asymptote, like 1/x at x=0. On the curve, the function
+            // is closer to 0 between the two corners than at either of them. At an asymptote, it isn't.
+            double residual = Math.abs(mEvaluator.eval(x, y));
+            if (!(residual <= Math.max(Math.abs(a), Math.abs(b)))) {
+                return false;
+            }
+
+            if (mEnds == mEdges.length) {
+                mEdges = Arrays.copyOf(mEdges, mEdges.length * 2);
+                mPoints = Arrays.copyOf(mPoints, mPoints.length * 2);
+            }
+            mEdges[mEnds] = edge;
+            mPoints[mEnds * 2] = x;
+            mPoints[mEnds * 2 + 1] = y;
+            mEnds++;
+            return true;
+        }
+    }
+
+    /**
+     * Joins pieces that share an edge into lines, and writes those lines out.
+     */
+    private void join(PointBuffer out) {
+        int ends = mEnds;
+        if (ends == 0) {
+            return;
+        }
+
+        // Sort the ends by edge. Two ends on the same edge are the same point, and belong to
+        // neighbouring pieces.
+        long[] byEdge = new long[ends];
+        for (int i = 0; i < ends; i++) {
+            byEdge[i] = ((long) mEdges[i] << 32) | i;
+        }
+        Arrays.sort(byEdge);
+
+        int[] partner = new int[ends];
+        Arrays.fill(partner, -1);
+        for (int i = 1; i < ends; i++) {
+            if ((byEdge[i] >>> 32) == (byEdge[i - 1] >>> 32)) {
+                int a = (int) byEdge[i - 1];
+                int b = (int) byEdge[i];
+                partner[a] = b;
+                partner[b] = a;
+            }
+        }
+
+        // A piece is made of ends 2n and 2n+1
+        int pieces = ends / 2;
+        boolean[] visited = new boolean[pieces];
+        out.ensureCapacity(out.size() + pieces + pieces / 4 + 1);
+        for (int piece = 0; piece < pieces; piece++) {
+            if (visited[piece]) continue;
+
+            // Walk backwards to the start of the line. If it's a loop, we'll end up back here.
+            int start = piece * 2;
+            int previous = partner[start];
+            while (previous != -1 && previous / 2 != piece) {
+                start = previous ^ 1;
+                previous = partner[start];
+            }
+
+            // Then walk forwards, writing out every piece on the way
+            int end = start;
+            addPoint(out, end);
+            while (end != -1 && !visited[end / 2]) {
+                visited[end / 2] = true;
+                addPoint(out, end ^ 1);
+                end = partner[end ^ 1];
+            }
+            out.addBreak();
+        }
+    }
+
+    private void addPoint(PointBuffer out, int end) {
+        out.add(mPoints[end * 2], mPoints[end * 2 + 1]);
+    }
+
+    private int horizontalEdge(int column, int row) {
+        return row * mColumns + column;
+    }
+
+    private int verticalEdge(int column, int row) {
+        return mColumns * (mRows + 1) + (row - 1) * (mColumns + 1) + column;
+    }
+
+    /**
+     * Returns how far along an edge, from 0 to 1, the function crosses 0.
+     */
+    private static float interpolate(double a, double b) {
+        return (float) (a / (a - b));
+    }
+
+    private static boolean isFinite(double value) {
+        return !Double.isNaN(value) && !Double.isInfinite(value);
+    }
+}
@@ -0,0 +1,792 @@
+package com.xlythe.math;
+
+import org.ejml.concurrency.EjmlConcurrency;
+import org.ejml.data.DMatrixRMaj;
+import org.ejml.data.DMatrixSparseCSC;
+import org.ejml.data.Matrix;
+import org.ejml.dense.row.CommonOps_DDRM;
+import org.ejml.dense.row.CommonOps_MT_DDRM;
+import org.ejml.dense.row.MatrixFeatures_DDRM;
+import org.ejml.dense.row.factory.DecompositionFactory_DDRM;
+import org.ejml.dense.row.factory.DecompositionFactory_MT_DDRM;
+import org.ejml.interfaces.decomposition.EigenDecomposition_F64;
+import org.ejml.ops.DConvertMatrixStruct;
+import org.ejml.simple.SimpleEVD;
+import org.ejml.simple.SimpleMatrix;
+import org.ejml.simple.SimpleSVD;
+import org.ejml.sparse.csc.CommonOps_DSCC;
+
+@SuppressWarnings({"WeakerAccess", "unused"})
+public class MatrixModule extends Module {
+    private static final String TAG = MatrixModule.class.getSimpleName();
+    // Symmetric matrices raised to at least this power are diagonalized instead of multiplied
+    private static final long SYMMETRIC_POWER_THRESHOLD = 32;
+    // How far apart mirrored elements may be for a matrix to count as symmetric
+    private static final double SYMMETRIC_TOLERANCE = 1e-12;
+    // Matrices at least this size are multiplied and decomposed on several threads by default
+    public static final int DEFAULT_CONCURRENCY_THRESHOLD = 128;
+    // Matrices with at most this fraction of non-zero elements are stored sparse by default
+    public static final double DEFAULT_SPARSE_DENSITY = 0.1;
+    // Smaller matrices are always dense. They gain little from being sparse, and the dense
+    // solvers round simple inputs the way existing results expect.
+    private static final int SPARSE_MIN_ELEMENTS = 32 * 32;
+
+    // Used for division and inverses
+    private final LinearSolvers mLinearSolvers = new LinearSolvers(this);
+    private int mConcurrencyThreshold = DEFAULT_CONCURRENCY_THRESHOLD;
+    private double mSparseDensity = DEFAULT_SPARSE_DENSITY;
+
+    MatrixModule(Solver solver) {
+        super(solver);
+    }
+
+    private static String numToString(double arg) {
+        // Cut off very small arguments
+        if (Math.abs(arg) < 1.0E-10) return "0";
+
+        String temp = Double.toString(arg).replace('E', 'e');
+        if (temp.endsWith(".0")) temp = temp.substring(0, temp.length() - 2);
+        return temp;
+    }
+
+    private static String printMatrix(DMatrixRMaj mat) {
+        StringBuilder buffer = new StringBuilder("[");
+        int m = mat.numRows;
+        int n = mat.numCols;
+        for (int i = 0; i < m; i++) {
+            buffer.append('[');
+            for (int j = 0; j < n; j++) {
+                buffer.append(numToString(mat.data[i * n + j]));
+                if (j != n - 1) buffer.append(',');
+            }
+            buffer.append(']');
+        }
+        buffer.append(']');
+
+        return buffer.toString();
+    }
+
+    private static String printMatrix(DMatrixSparseCSC mat) {
+        // The transpose holds each row as a column, with the elements in order
+        DMatrixSparseCSC rows = CommonOps_DSCC.transpose(mat, null, null);
+        StringBuilder buffer = new StringBuilder("[");
+        int m = mat.numRows;
+        int n = mat.numCols;
+        for (int i = 0; i < m; i++) {
+            buffer.append('[');
+            int next = rows.col_idx[i];
+            int end = rows.col_idx[i + 1];
+            for (int j = 0; j < n; j++) {
+                if (next < end && rows.nz_rows[next] == j) {
+                    buffer.append(numToString(rows.nz_values[next++]));
+                } else {
+                    buffer.append('0');
+                }
+                if (j != n - 1) buffer.append(',');
+            }
+            buffer.append(']');
+        }
+        buffer.append(']');
+
+        return buffer.toString();
+    }
+
+    /**
+     * Undo anything changed in clean(). The resulting String won't be parsable by MatrixModule
+     * anymore, but it'll look right to Solver.
+     */
+    private String dirty(String input) {
+        input = input.replace('-', Constants.MINUS);
+        return input;
+    }
+
+    /**
+     * Modify the text to make it easier to manipulate (eg, replacing all minus signs with a standard sign).
+     */
+    private String clean(String input) {
+        // I never realized negative numbers could be so difficult.
+        input = input.replace(Constants.MINUS, '-');
+        // All remaining instances of U+2212 will be on negative numbers.
+        // They will be counted as whole tokens.
+        return input;
+    }
+
+    /**
+     * Solves text that isn't part of a matrix, like a variable, with the Solver.
+     */
+    double solveScalar(String input) throws SyntaxException {
+        SolveResult result = getSolver().solveForResult(input);
+        if (!result.isReal()) {
+            Log.e(TAG, input + " is not a real number");
+            throw new SyntaxException();
+        }
+        return result.getReal();
+    }
+
+    /**
+     * Parses the input into a tree, then evaluates it. Matrices are kept as DMatrixRMaj or
+     * DMatrixSparseCSC objects the whole way through. Returns a Double or one of those.
+     */
+    Object evaluate(String text) throws SyntaxException {
+        text = getSolver().convertToDecimal(text);
+        Object result = new MatrixParser(clean(text)).parse().evaluate(this);
+
+        // Functions might generate NaN. Return error if so.
+        if (result instanceof Double) {
+            if (Double.isNaN((Double) result)) throw new SyntaxException();
+            return result;
+        }
+
+        if (result instanceof DMatrixSparseCSC) {
+            DMatrixSparseCSC matrix = (DMatrixSparseCSC) result;
+            for (int i = 0; i < matrix.nz_length; i++) {
+                if (Double.isNaN(matrix.nz_values[i])) throw new SyntaxException();
+            }
+            return matrix;
+        }
+
+        DMatrixRMaj matrix = (DMatrixRMaj) result;
+        for (int i = 0; i < matrix.getNumElements(); i++) {
+            if (Double.isNaN(matrix.data[i])) throw new SyntaxException();
+        }
+        return matrix;
+    }
+
+    /**
+     * Writes a value returned by {@link #evaluate(String)} as text in the given base.
+     */
+    String format(Object value, Base base) throws SyntaxException {
+        String text;
+        if (value instanceof Double) {
+            text = numToString((Double) value);
+        } else if (value instanceof DMatrixSparseCSC) {
+            text = printMatrix((DMatrixSparseCSC) value);
+        } else {
+            text = printMatrix((DMatrixRMaj) value);
+        }
+        return getSolver().getBaseModule().changeBase(dirty(text), base);
+    }
+
+    String evaluateMatrices(String text) throws SyntaxException {
+        return format(evaluate(text), getSolver().getBase());
+    }
+
+    // Values are a Double, a DMatrixRMaj or a DMatrixSparseCSC. Every matrix passed in is a
+    // temporary that belongs to the caller, so it may be modified and returned instead of copied.
+    // Sparse matrices are made dense for operations that have no sparse version.
+
+    Object applyFunc(String func, Object arg) throws SyntaxException {
+        // Most functions fill in the zeros, and the rest need a decomposition
+        arg = toDense(arg);
+        if (!(arg instanceof DMatrixRMaj)) {
+            return applyFunc(func, (double) (Double) arg);
+        }
+
+        DMatrixRMaj matrix = (DMatrixRMaj) arg;
+        switch (func) {
+            case "\u221a":
+            case "sqrt":
+                return root(matrix, false);
+            case "cbrt":
+                return root(matrix, true);
+            case "det":
+                if (matrix.numCols != matrix.numRows) throw new SyntaxException();
+                return CommonOps_DDRM.det(matrix);
+            default:
+                // Everything else is applied to each element
+                for (int i = 0; i < matrix.getNumElements(); i++)
+                    matrix.data[i] = applyFunc(func, matrix.data[i]);
+                return matrix;
+        }
+    }
+
+    private static double applyFunc(String func, double arg) throws SyntaxException {
+        double DEG = Math.PI / 180.0;
+        switch (func) {
+            case "\u221a":
+            case "sqrt":
+                return Math.sqrt(arg);
+            case "cbrt":
+                return Math.cbrt(arg);
+            case "sin":
+                return Math.sin(arg);
+            case "cos":
+                return Math.cos(arg);
+            case "tan":
+                return Math.tan(arg);
+            case "sind":
+                return Math.sin(arg * DEG);
+            case "cosd":
+                return Math.cos(arg * DEG);
+            case "tand":
+                return Math.tan(arg * DEG);
+            case "asind":
+                return Math.asin(arg) / DEG;
+            case "acosd":
+                return Math.acos(arg) / DEG;
+            case "atand":
+                return Math.atan(arg) / DEG;
+            case "log":
+                return Math.log10(arg);
+            case "ln":
+                return Math.log(arg);
+            case "asin":
+                return Math.asin(arg);
+            case "acos":
+                return Math.acos(arg);
+            case "atan":
+                return Math.atan(arg);
+            case "det":
+                // Determinant of a scalar is equivalent to det. of
+                // 1x1 matrix, which is the matrix' one element
+                return arg;
+            default:
+                throw new SyntaxException();
+        }
+    }
+
+    /**
+     * Takes the square or cube root of a square matrix, through its eigen decomposition.
+     */
+    private DMatrixRMaj root(DMatrixRMaj matrix, boolean cube) throws SyntaxException {
+        int m = matrix.numRows;
+        int n = matrix.numCols;
+        if (m != n) throw new SyntaxException();
+        SimpleEVD<SimpleMatrix> decomp = new SimpleEVD<>(matrix);
+        double[] evals = new double[m];
+        for (int i1 = 0; i1 < m; i1++) {
+            double magnitude = decomp.getEigenvalue(i1).getMagnitude();
+            evals[i1] = cube ? Math.cbrt(magnitude) : Math.sqrt(magnitude);
+        }
+        DMatrixRMaj D = CommonOps_DDRM.diag(evals);
+        DMatrixRMaj V = new DMatrixRMaj(m, n);
+        for (int k = 0; k < m; k++) {
+            SimpleMatrix col = decomp.getEigenVector(k);
+            for (int l = 0; l < n; l++) {
+                V.set(k, l, col.get(l, 0));
+            }
+        }
+        DMatrixRMaj VD = new DMatrixRMaj(m, n);
+        mult(V, D, VD);
+        if (!CommonOps_DDRM.invert(V)) throw new SyntaxException();
+        DMatrixRMaj result = new DMatrixRMaj(m, n);
+        mult(VD, V, result);
+        return result;
+    }
+
+    Object applyUnary(char operator, Object arg) throws SyntaxException {
+        if (arg instanceof DMatrixSparseCSC) {
+            Object result = applySparse(operator, (DMatrixSparseCSC) arg);
+            if (result != null) return result;
+            arg = toDense(arg);
+        }
+
+        switch (operator) {
+            case MatrixNode.Unary.NEGATE:
+                return applyMult(arg, -1.0);
+            case MatrixNode.Unary.PERCENT:
+                return applyMult(arg, 0.01);
+            case MatrixNode.Unary.FACTORIAL: {
+                if (!(arg instanceof Double)) throw new SyntaxException();
+                double n = (Double) arg;
+                if (n < 0 || n != Math.floor(n)) throw new SyntaxException();
+                double m = 1;
+                for (int i = 2; i <= n; i++)
+                    m *= i;
+                return m;
+            }
+            case MatrixNode.Unary.TRANSPOSE:
+                if (!(arg instanceof DMatrixRMaj)) return arg;
+                return CommonOps_DDRM.transpose((DMatrixRMaj) arg, null);
+            case MatrixNode.Unary.INVERSE:
+                if (!(arg instanceof DMatrixRMaj)) return 1.0 / (Double) arg;
+                return mLinearSolvers.invert((DMatrixRMaj) arg);
+            default:
+                throw new SyntaxException();
+        }
+    }
+
+    Object applyBinary(char operator, Object l, Object r) throws SyntaxException {
+        if (l instanceof DMatrixSparseCSC || r instanceof DMatrixSparseCSC) {
+            Object result = applySparse(operator, l, r);
+            if (result != null) return result;
+            l = toDense(l);
+            r = toDense(r);
+        }
+
+        switch (operator) {
+            case '+':
+                return applyPlus(l, r);
+            case '-':
+                return applySub(l, r);
+            case Constants.MUL:
+                return applyMult(l, r);
+            case Constants.DIV:
+                return applyDiv(l, r);
+            case '^':
+                return applyPow(l, r);
+            default:
+                throw new SyntaxException();
+        }
+    }
+
+    private Object applyPow(Object l, Object r) throws SyntaxException {
+        if (l instanceof DMatrixRMaj && r instanceof DMatrixRMaj) throw new SyntaxException();
+        else if (l instanceof DMatrixRMaj) {
+            return pow((DMatrixRMaj) l, (Double) r);
+        } else if (r instanceof DMatrixRMaj) {
+            return pow((DMatrixRMaj) r, (Double) l);
+        } else {
+            double a = (Double) l;
+            double b = (Double) r;
+            return Math.pow(a, b);
+        }
+    }
+
+    private DMatrixRMaj pow(DMatrixRMaj a, double b) throws SyntaxException {
+        int m = a.numRows;
+        int n = a.numCols;
+        if (m != n) throw new SyntaxException();
+        if (b > Math.floor(b)) {
+            SimpleSVD<SimpleMatrix> decomp = new SimpleSVD<>(a, false);
+            SimpleMatrix S = decomp.getW();
+            for (int i1 = 0; i1 < m; i1++) {
+                for (int j = 0; j < n; j++) {
+                    double arg = S.get(i1, j);
+                    S.set(i1, j, Math.pow(arg, b));
+                }
+            }
+            SimpleMatrix matrix = decomp.getU().mult(S);
+            matrix = matrix.mult(decomp.getV().transpose());
+            return matrix.getDDRM();
+        }
+
+        long exponent = Math.round(b);
+        if (exponent < 0) {
+            // A^-k is (A^-1)^k, so only one inverse is needed
+            a = mLinearSolvers.invert(a);
+            exponent = -exponent;
+        }
+
+        // Whole numbers stay exact when multiplied, but not when diagonalized
+        if (exponent >= SYMMETRIC_POWER_THRESHOLD && !isWholeNumbers(a)
+                && MatrixFeatures_DDRM.isSymmetric(a, SYMMETRIC_TOLERANCE)) {
+            DMatrixRMaj result = symmetricPow(a, exponent);
+            if (result != null) return result;
+        }
+        return binaryPow(a, exponent);
+    }
+
+    /**
+     * Raises a square matrix to a non-negative integer power by repeated squaring, which takes
+     * O(log exponent) multiplications. The matrix is used as a work buffer.
+     */
+    private DMatrixRMaj binaryPow(DMatrixRMaj a, long exponent) {
+        if (exponent == 0) {
+            return CommonOps_DDRM.identity(a.numRows);
+        }
+
+        // Squares of the original matrix: A, A^2, A^4, ...
+        DMatrixRMaj square = a;
+        DMatrixRMaj result = null;
+        DMatrixRMaj work = new DMatrixRMaj(a.numRows, a.numCols);
+        while (true) {
+            if ((exponent & 1) == 1) {
+                if (result == null) {
+                    result = square.copy();
+                } else {
+                    mult(result, square, work);
+                    DMatrixRMaj temp = result;
+                    result = work;
+                    work = temp;
+                }
+            }
+
+            exponent >>= 1;
+            if (exponent == 0) {
+                return result;
+            }
+
+            mult(square, square, work);
+            DMatrixRMaj temp = square;
+            square = work;
+            work = temp;
+        }
+    }
+
+    /**
+     * Raises a symmetric matrix to an integer power through its eigen decomposition,
+     * A^k = V D^k V^T. The cost doesn't depend on the exponent. Returns null if the matrix
+     * can't be decomposed.
+     */
+    private DMatrixRMaj symmetricPow(DMatrixRMaj a, long exponent) {
+        int n = a.numRows;
+        boolean concurrent = isConcurrent(n, n, n);
+        EigenDecomposition_F64<DMatrixRMaj> eig = concurrent
+                ? DecompositionFactory_MT_DDRM.eig(n, true, true)
+                : DecompositionFactory_DDRM.eig(n, true, true);
+        if (!eig.decompose(a)) {
+            return null;
+        }
+
+        // The eigenvectors of a symmetric matrix are orthonormal, so V^-1 is V^T
+        DMatrixRMaj vectors = new DMatrixRMaj(n, n);
+        DMatrixRMaj scaled = new DMatrixRMaj(n, n);
+        for (int j = 0; j < n; j++) {
+            DMatrixRMaj vector = eig.getEigenVector(j);
+            if (vector == null) return null;
+            double power = Math.pow(eig.getEigenvalue(j).getReal(), exponent);
+            for (int i = 0; i < n; i++) {
+                vectors.unsafe_set(i, j, vector.get(i));
+                scaled.unsafe_set(i, j, vector.get(i) * power);
+            }
+        }
+
+        DMatrixRMaj result = new DMatrixRMaj(n, n);
+        if (concurrent) {
+            CommonOps_MT_DDRM.multTransB(scaled, vectors, result);
+        } else {
+            CommonOps_DDRM.multTransB(scaled, vectors, result);
+        }
+        return result;
+    }
+
+    private static boolean isWholeNumbers(DMatrixRMaj a) {
+        for (int i = 0; i < a.getNumElements(); i++) {
+            if (a.data[i] != Math.rint(a.data[i])) return false;
+        }
+        return true;
+    }
+
+    private Object applyMult(Object l, Object r) throws SyntaxException {
+        if (l instanceof DMatrixRMaj && r instanceof DMatrixRMaj) {
+            DMatrixRMaj a = (DMatrixRMaj) l;
+            DMatrixRMaj b = (DMatrixRMaj) r;
+            if (a.numCols != b.numRows) throw new SyntaxException();
+            DMatrixRMaj c = new DMatrixRMaj(a.numRows, b.numCols);
+            mult(a, b, c);
+            return c;
+        } else if (l instanceof DMatrixRMaj) {
+            DMatrixRMaj a = (DMatrixRMaj) l;
+            double b = (Double) r;
+            CommonOps_DDRM.scale(b, a);
+            return a;
+        } else if (r instanceof DMatrixRMaj) {
+            DMatrixRMaj a = (DMatrixRMaj) r;
+            double b = (Double) l;
+            CommonOps_DDRM.scale(b, a);
+            return a;
+        } else {
+            double a = (Double) l;
+            double b = (Double) r;
+            return a * b;
+        }
+    }
+
+    private Object applyDiv(Object l, Object r) throws SyntaxException {
+        if (l instanceof DMatrixRMaj && r instanceof DMatrixRMaj) {
+            DMatrixRMaj a = (DMatrixRMaj) l;
+            DMatrixRMaj b = (DMatrixRMaj) r;
+            if (a.numCols != b.numCols) throw new SyntaxException();
+            return mLinearSolvers.divide(a, b);
+        } else if (l instanceof DMatrixRMaj) {
+            DMatrixRMaj a = (DMatrixRMaj) l;
+            double b = (Double) r;
+            CommonOps_DDRM.divide(a, b);
+            return a;
+        } else if (r instanceof DMatrixRMaj) {
+            DMatrixRMaj a = mLinearSolvers.invert((DMatrixRMaj) r);
+            double b = (Double) l;
+            CommonOps_DDRM.scale(b, a);
+            return a;
+        } else {
+            double a = (Double) l;
+            double b = (Double) r;
+            return a / b;
+        }
+    }
+
+    private Object applyPlus(Object l, Object r) throws SyntaxException {
+        if (l instanceof DMatrixRMaj && r instanceof DMatrixRMaj) {
+            DMatrixRMaj a = (DMatrixRMaj) l;
+            DMatrixRMaj b = (DMatrixRMaj) r;
+            if (a.numRows != b.numRows || a.numCols != b.numCols) {
+                Log.e(TAG, "Matrix operation plus not allowed on " + a + " and " + b);
+                throw new SyntaxException();
+            }
+            CommonOps_DDRM.addEquals(a, b);
+            return a;
+        } else if (l instanceof DMatrixRMaj) {
+            DMatrixRMaj a = (DMatrixRMaj) l;
+            double b = (Double) r;
+            CommonOps_DDRM.add(a, b);
+            return a;
+        } else if (r instanceof DMatrixRMaj) {
+            DMatrixRMaj a = (DMatrixRMaj) r;
+            double b = (Double) l;
+            CommonOps_DDRM.add(a, b);
+            return a;
+        } else {
+            double a = (Double) l;
+            double b = (Double) r;
+            return a + b;
+        }
+    }
+
+    private Object applySub(Object l, Object r) throws SyntaxException {
+        if (l instanceof DMatrixRMaj && r instanceof DMatrixRMaj) {
+            DMatrixRMaj a = (DMatrixRMaj) l;
+            DMatrixRMaj b = (DMatrixRMaj) r;
+            if (a.numRows != b.numRows || a.numCols != b.numCols) {
+                Log.e(TAG, "Matrix operation minus not allowed on " + a + " and " + b);
+                throw new SyntaxException();
+            }
+            CommonOps_DDRM.subtractEquals(a, b);
+            return a;
+        } else if (l instanceof DMatrixRMaj) {
+            DMatrixRMaj a = (DMatrixRMaj) l;
+            double b = (Double) r;
+            CommonOps_DDRM.add(a, -b);
+            return a;
+        } else if (r instanceof DMatrixRMaj) {
+            // b - a, one element at a time
+            DMatrixRMaj a = (DMatrixRMaj) r;
+            double b = (Double) l;
+            CommonOps_DDRM.scale(-1, a);
+            CommonOps_DDRM.add(a, b);
+            return a;
+        } else {
+            double a = (Double) l;
+            double b = (Double) r;
+            return a - b;
+        }
+    }
+
+    /**
+     * Applies a unary operator to a sparse matrix, or returns null if the operator has no sparse
+     * version.
+     */
+    private Object applySparse(char operator, DMatrixSparseCSC a) {
+        switch (operator) {
+            case MatrixNode.Unary.NEGATE:
+                CommonOps_DSCC.scale(-1, a, a);
+                return a;
+            case MatrixNode.Unary.PERCENT:
+                CommonOps_DSCC.scale(0.01, a, a);
+                return a;
+            case MatrixNode.Unary.TRANSPOSE:
+                return CommonOps_DSCC.transpose(a, null, null);
+            case MatrixNode.Unary.INVERSE:
+                return mLinearSolvers.invert(a);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Applies a binary operator where at least one side is a sparse matrix, or returns null if
+     * the operator has no sparse version for these arguments. Adding a scalar or a dense matrix
+     * fills in the zeros, so only sparse plus sparse stays sparse.
+     */
+    private Object applySparse(char operator, Object l, Object r) throws SyntaxException {
+        switch (operator) {
+            case '+':
+            case '-': {
+                if (!(l instanceof DMatrixSparseCSC && r instanceof DMatrixSparseCSC)) return null;
+                DMatrixSparseCSC a = (DMatrixSparseCSC) l;
+                DMatrixSparseCSC b = (DMatrixSparseCSC) r;
+                if (a.numRows != b.numRows || a.numCols != b.numCols) {
+                    Log.e(TAG, "Matrix operation " + operator + " not allowed on " + a + " and " + b);
+                    throw new SyntaxException();
+                }
+                return CommonOps_DSCC.add(1, a, operator == '+' ? 1 : -1, b, null, null, null);
+            }
+            case Constants.MUL:
+                if (l instanceof Double) {
+                    DMatrixSparseCSC a = (DMatrixSparseCSC) r;
+                    CommonOps_DSCC.scale((Double) l, a, a);
+                    return a;
+                } else if (r instanceof Double) {
+                    DMatrixSparseCSC a = (DMatrixSparseCSC) l;
+                    CommonOps_DSCC.scale((Double) r, a, a);
+                    return a;
+                }
+                if (((Matrix) l).getNumCols() != ((Matrix) r).getNumRows()) {
+                    throw new SyntaxException();
+                }
+                if (l instanceof DMatrixSparseCSC && r instanceof DMatrixSparseCSC) {
+                    return CommonOps_DSCC.mult((DMatrixSparseCSC) l, (DMatrixSparseCSC) r, null);
+                } else if (l instanceof DMatrixSparseCSC) {
+                    return CommonOps_DSCC.mult((DMatrixSparseCSC) l, (DMatrixRMaj) r, null);
+                } else {
+                    // A B = (B^T A^T)^T, which keeps the sparse matrix on the left
+                    DMatrixSparseCSC bt = CommonOps_DSCC.transpose((DMatrixSparseCSC) r, null, null);
+                    DMatrixRMaj at = CommonOps_DDRM.transpose((DMatrixRMaj) l, null);
+                    return CommonOps_DDRM.transpose(CommonOps_DSCC.mult(bt, at, null), null);
+                }
+            case Constants.DIV:
+                if (r instanceof Double) {
+                    DMatrixSparseCSC a = (DMatrixSparseCSC) l;
+                    CommonOps_DSCC.divide(a, (Double) r, a);
+                    return a;
+                } else if (l instanceof Double) {
+                    DMatrixRMaj a = mLinearSolvers.invert((DMatrixSparseCSC) r);
+                    CommonOps_DDRM.scale((Double) l, a);
+                    return a;
+                } else if (r instanceof DMatrixSparseCSC) {
+                    DMatrixRMaj a = (DMatrixRMaj) toDense(l);
+                    DMatrixSparseCSC b = (DMatrixSparseCSC) r;
+                    if (a.numCols != b.numCols) throw new SyntaxException();
+                    return mLinearSolvers.divide(a, b);
+                }
+                return null;
+            case '^':
+                // Other powers fill in the zeros
+                if (l instanceof DMatrixSparseCSC && r instanceof Double && (Double) r == -1) {
+                    return mLinearSolvers.invert((DMatrixSparseCSC) l);
+                }
+                return null;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Returns the matrix as a DMatrixSparseCSC if it's large and few enough of its elements
+     * aren't zero. Otherwise, returns it unchanged.
+     */
+    Object compress(DMatrixRMaj matrix) {
+        int size = matrix.getNumElements();
+        if (size < SPARSE_MIN_ELEMENTS || mSparseDensity <= 0) return matrix;
+
+        int nonZero = 0;
+        for (int i = 0; i < size; i++) {
+            if (matrix.data[i] != 0) nonZero++;
+        }
+        if (nonZero > size * mSparseDensity) return matrix;
+        return DConvertMatrixStruct.convert(matrix, (DMatrixSparseCSC) null, 0);
+    }
+
+    /**
+     * Returns sparse matrices as a DMatrixRMaj. Other values are returned unchanged.
+     */
+    static Object toDense(Object value) {
+        if (!(value instanceof DMatrixSparseCSC)) return value;
+        return DConvertMatrixStruct.convert((DMatrixSparseCSC) value, (DMatrixRMaj) null);
+    }
+
+    /**
+     * Multiplies a by b into c, on several threads if the matrices are large enough.
+     */
+    private void mult(DMatrixRMaj a, DMatrixRMaj b, DMatrixRMaj c) {
+        if (isConcurrent(a.numRows, a.numCols, b.numCols)) {
+            CommonOps_MT_DDRM.mult(a, b, c);
+        } else {
+            CommonOps_DDRM.mult(a, b, c);
+        }
+    }
+
+    /**
+     * Returns true if multiplying an m by k matrix with a k by n matrix is worth splitting
+     * across threads. Decompositions of an n by n matrix are checked with m = k = n.
+     */
+    boolean isConcurrent(int m, int k, int n) {
+        // Compared as doubles, so that very large thresholds don't overflow
+        double threshold = mConcurrencyThreshold;
+        return (double) m * k * n >= threshold * threshold * threshold;
+    }
+
+    /**
+     * Sets how large matrices must be before they're multiplied and decomposed on several
+     * threads. Products count as large when they take as much work as multiplying two square
+     * matrices of this size. Splitting small matrices across threads costs more than it saves,
+     * so run MatrixBenchmark to find the crossover for a device. Pass Integer.MAX_VALUE to
+     * always use one thread.
+     */
+    public void setConcurrencyThreshold(int size) {
+        mConcurrencyThreshold = size;
+    }
+
+    public int getConcurrencyThreshold() {
+        return mConcurrencyThreshold;
+    }
+
+    /**
+     * Sets the largest fraction of non-zero elements a matrix may have to be stored sparse.
+     * Sparse matrices are multiplied, added, transposed and divided without touching their
+     * zeros, and are only made dense for operations like functions and powers. Only matrices
+     * with at least 1024 elements are considered. Pass 0 to keep every matrix dense.
+     */
+    public void setSparseDensity(double density) {
+        mSparseDensity = density;
+    }
+
+    public double getSparseDensity() {
+        return mSparseDensity;
+    }
+
+    /**
+     * Sets how many threads large matrices are split across. EJML keeps a single pool for the
+     * whole process, so this affects every Solver.
+     */
+    public static void setMaxThreads(int threads) {
+        EjmlConcurrency.setMaxThreads(threads);
+    }
+
+    public static int getMaxThreads() {
+        return EjmlConcurrency.getMaxThreads();
+    }
+
+    /**
+     * Returns true if the text contains a matrix of numbers, like [[1,2][3,4]]. The text is
+     * scanned instead of matched with a regular expression, because the regex engine recurses for
+     * every element and overflows the stack on large matrices.
+     */
+    boolean isMatrix(String text) {
+        for (int i = text.indexOf("[["); i != -1; i = text.indexOf("[[", i + 1)) {
+            int end = skipRows(text, i + 1);
+            if (end > i + 1 && end < text.length() && text.charAt(end) == ']') return true;
+        }
+        return false;
+    }
+
+    /**
+     * Skips rows like [1,2.5,−3] starting at the given index, and returns the index after the
+     * last one.
+     */
+    private static int skipRows(String text, int start) {
+        int rowStart = start;
+        while (rowStart < text.length() && text.charAt(rowStart) == '[') {
+            int i = rowStart + 1;
+            while (true) {
+                i = skipNumber(text, i);
+                if (i == text.length()) return rowStart;
+                char c = text.charAt(i);
+                if (c == ']') break;
+                if (c != Constants.MATRIX_SEPARATOR) return rowStart;
+                i++;
+            }
+            rowStart = i + 1;
+        }
+        return rowStart;
+    }
+
+    /**
+     * Skips a number, which may be empty, and returns the index after it.
+     */
+    private static int skipNumber(String text, int i) {
+        if (i < text.length() && (text.charAt(i) == Constants.MINUS || text.charAt(i) == '-')) i++;
+        i = skipDigits(text, i);
+        if (i < text.length() && text.charAt(i) == Constants.DECIMAL_POINT) i = skipDigits(text, i + 1);
+        return i;
+    }
+
+    private static int skipDigits(String text, int i) {
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (!(c >= '0' && c <= '9') && !(c >= 'A' && c <= 'F')) break;
+            i++;
+        }
+        return i;
+    }
+}
@@ -0,0 +1,139 @@
+package com.xlythe.math;
+
+import org.ejml.data.DMatrixRMaj;
+
+/**
+ * A node in a parsed matrix expression. Evaluating a node gives a Double, a DMatrixRMaj, or a
+ * DMatrixSparseCSC for large matrices that are mostly zeros.
+ * <p>
+ * Every evaluation creates new matrices, so a parent node is free to modify its children's values.
+ */
+abstract class MatrixNode {
+    abstract Object evaluate(MatrixModule module) throws SyntaxException;
+
+    /**
+     * A number, or a constant like e or pi.
+     */
+    static final class Number extends MatrixNode {
+        private final double mValue;
+
+        Number(double value) {
+            mValue = value;
+        }
+
+        @Override
+        Object evaluate(MatrixModule module) {
+            return mValue;
+        }
+    }
+
+    /**
+     * A name that isn't a known function or constant. It's handed to the Solver, which may have
+     * a value for it.
+     */
+    static final class Variable extends MatrixNode {
+        private final String mName;
+
+        Variable(String name) {
+            mName = name;
+        }
+
+        @Override
+        Object evaluate(MatrixModule module) throws SyntaxException {
+            return module.solveScalar(mName);
+        }
+    }
+
+    /**
+     * A matrix written out element by element, like [[1,2][3,4]]. Each element may be an
+     * expression, but must be a scalar. Large matrices that are mostly zeros are stored sparse.
+     */
+    static final class Literal extends MatrixNode {
+        private final int mRows;
+        private final int mColumns;
+        // Row by row
+        private final MatrixNode[] mElements;
+
+        Literal(int rows, int columns, MatrixNode[] elements) {
+            mRows = rows;
+            mColumns = columns;
+            mElements = elements;
+        }
+
+        @Override
+        Object evaluate(MatrixModule module) throws SyntaxException {
+            SolverMetrics metrics = module.getSolver().getMetrics();
+            if (metrics != null) metrics.onMatrix(mRows, mColumns);
+
+            DMatrixRMaj matrix = new DMatrixRMaj(mRows, mColumns);
+            for (int i = 0; i < mElements.length; i++) {
+                Object element = mElements[i].evaluate(module);
+                if (!(element instanceof Double)) throw new SyntaxException();
+                matrix.data[i] = (Double) element;
+            }
+            return module.compress(matrix);
+        }
+    }
+
+    /**
+     * A prefix or postfix operator.
+     */
+    static final class Unary extends MatrixNode {
+        static final char NEGATE = '-';
+        static final char FACTORIAL = '!';
+        static final char PERCENT = '%';
+        static final char TRANSPOSE = 'T';
+        static final char INVERSE = 'I';
+
+        private final char mOperator;
+        private final MatrixNode mOperand;
+
+        Unary(char operator, MatrixNode operand) {
+            mOperator = operator;
+            mOperand = operand;
+        }
+
+        @Override
+        Object evaluate(MatrixModule module) throws SyntaxException {
+            return module.applyUnary(mOperator, mOperand.evaluate(module));
+        }
+    }
+
+    /**
+     * An infix operator: addition, subtraction, multiplication, division or powers.
+     */
+    static final class Binary extends MatrixNode {
+        private final char mOperator;
+        private final MatrixNode mLeft;
+        private final MatrixNode mRight;
+
+        Binary(char operator, MatrixNode left, MatrixNode right) {
+            mOperator = operator;
+            mLeft = left;
+            mRight = right;
+        }
+
+        @Override
+        Object evaluate(MatrixModule module) throws SyntaxException {
+            return module.applyBinary(mOperator, mLeft.evaluate(module), mRight.evaluate(module));
+        }
+    }
+
+    /**
+     * A function applied to a single argument, like sin or det.
+     */
+    static final class Call extends MatrixNode {
+        private final String mFunction;
+        private final MatrixNode mArgument;
+
+        Call(String function, MatrixNode argument) {
+            mFunction = function;
+            mArgument = argument;
+        }
+
+        @Override
+        Object evaluate(MatrixModule module) throws SyntaxException {
+            return module.applyFunc(mFunction, mArgument.evaluate(module));
+        }
+    }
+}
@@ -0,0 +1,330 @@
+package com.xlythe.math;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Parses a matrix expression into a tree of {@link MatrixNode}s, in a single pass over the input.
+ * <p>
+ * From lowest to highest precedence:
+ * <ul>
+ *     <li>+ and -, left to right</li>
+ *     <li>Multiplication and division, left to right. Operands written side by side are also
+ *     multiplied.</li>
+ *     <li>Unary minus</li>
+ *     <li>^, right to left</li>
+ *     <li>Postfix !, %, ^T (transpose) and ^-1 (inverse)</li>
+ *     <li>Numbers, constants, matrices, parentheses, and functions applied to their operand</li>
+ * </ul>
+ * Minus signs must already be plain hyphens, as done by MatrixModule.
+ */
+class MatrixParser {
+    static final Set<String> FUNCTIONS = new HashSet<>(Arrays.asList(
+            "\u221a", "sqrt", "cbrt", "log", "ln", "asin", "acos", "atan",
+            "sind", "cosd", "tand", "asind", "acosd", "atand", "sin", "cos", "tan", "det"));
+    private static final String E = "e";
+    private static final String PI = "\u03c0";
+
+    private static final int END = 0;
+    private static final int NUMBER = 1;
+    // A function, constant, or variable
+    private static final int NAME = 2;
+    // An operator, bracket, or separator. The character is the token.
+    private static final int SYMBOL = 3;
+    private static final int TRANSPOSE = 4;
+    private static final int INVERSE = 5;
+
+    private final String mInput;
+    private int mPosition;
+    // Closing parentheses to add at the end of the input
+    private int mMissingParens;
+
+    // The current token
+    private int mType;
+    private double mNumber;
+    private String mName;
+    private char mSymbol;
+
+    MatrixParser(String input) {
+        mInput = input;
+    }
+
+    /**
+     * Parses the whole input.
+     *
+     * @throws SyntaxException if the input isn't a valid expression
+     */
+    MatrixNode parse() throws SyntaxException {
+        int open = 0;
+        for (int i = 0; i < mInput.length(); i++) {
+            if (mInput.charAt(i) == '(') open++;
+            else if (mInput.charAt(i) == ')') open--;
+        }
+        if (open == 1) mMissingParens = 1; // Auto-balance if possible
+        else if (open != 0) throw new SyntaxException(); // Unbalanced
+
+        next();
+        MatrixNode node = parseExpression();
+        if (mType != END) throw new SyntaxException();
+        return node;
+    }
+
+    private MatrixNode parseExpression() throws SyntaxException {
+        MatrixNode node = parseTerm();
+        while (isSymbol('+') || isSymbol('-')) {
+            char operator = mSymbol;
+            next();
+            node = new MatrixNode.Binary(operator, node, parseTerm());
+        }
+        return node;
+    }
+
+    private MatrixNode parseTerm() throws SyntaxException {
+        MatrixNode node = parseUnary();
+        while (true) {
+            if (isSymbol(Constants.MUL) || isSymbol('*')) {
+                next();
+                node = new MatrixNode.Binary(Constants.MUL, node, parseUnary());
+            } else if (isSymbol(Constants.DIV) || isSymbol('/')) {
+                next();
+                node = new MatrixNode.Binary(Constants.DIV, node, parseUnary());
+            } else if (startsOperand()) {
+                node = new MatrixNode.Binary(Constants.MUL, node, parseUnary());
+            } else {
+                return node;
+            }
+        }
+    }
+
+    private MatrixNode parseUnary() throws SyntaxException {
+        if (isSymbol('-')) {
+            next();
+            return new MatrixNode.Unary(MatrixNode.Unary.NEGATE, parseUnary());
+        }
+        if (isSymbol('+')) {
+            next();
+            return parseUnary();
+        }
+        return parsePower();
+    }
+
+    private MatrixNode parsePower() throws SyntaxException {
+        MatrixNode node = parsePostfix(parsePrimary());
+        if (isSymbol('^')) {
+            next();
+            // The exponent may have its own sign, and chains of ^ group from the right
+            node = new MatrixNode.Binary('^', node, parseUnary());
+        }
+        return node;
+    }
+
+    private MatrixNode parsePostfix(MatrixNode node) throws SyntaxException {
+        while (true) {
+            if (isSymbol('!')) {
+                node = new MatrixNode.Unary(MatrixNode.Unary.FACTORIAL, node);
+            } else if (isSymbol('%')) {
+                node = new MatrixNode.Unary(MatrixNode.Unary.PERCENT, node);
+            } else if (mType == TRANSPOSE) {
+                node = new MatrixNode.Unary(MatrixNode.Unary.TRANSPOSE, node);
+            } else if (mType == INVERSE) {
+                node = new MatrixNode.Unary(MatrixNode.Unary.INVERSE, node);
+            } else {
+                return node;
+            }
+            next();
+        }
+    }
+
+    private MatrixNode parsePrimary() throws SyntaxException {
+        switch (mType) {
+            case NUMBER: {
+                MatrixNode node = new MatrixNode.Number(mNumber);
+                next();
+                return node;
+            }
+            case NAME: {
+                String name = mName;
+                next();
+                if (FUNCTIONS.contains(name)) {
+                    return new MatrixNode.Call(name, parseArgument());
+                } else if (name.equals(E)) {
+                    return new MatrixNode.Number(Math.E);
+                } else if (name.equals(PI)) {
+                    return new MatrixNode.Number(Math.PI);
+                }
+                return new MatrixNode.Variable(name);
+            }
+            case SYMBOL:
+                if (mSymbol == '(') {
+                    next();
+                    MatrixNode node = parseExpression();
+                    expect(')');
+                    return node;
+                } else if (mSymbol == '[') {
+                    return parseMatrix();
+                }
+                // Fall through
+            default:
+                throw new SyntaxException();
+        }
+    }
+
+    /**
+     * Parses what a function is applied to. Functions bind tighter than ^, so sin2^2 is (sin2)^2.
+     */
+    private MatrixNode parseArgument() throws SyntaxException {
+        if (isSymbol('-')) {
+            next();
+            return new MatrixNode.Unary(MatrixNode.Unary.NEGATE, parseArgument());
+        }
+        return parsePostfix(parsePrimary());
+    }
+
+    /**
+     * Parses a matrix like [[1,2][3,4]], one row of brackets at a time.
+     */
+    private MatrixNode parseMatrix() throws SyntaxException {
+        expect('[');
+        List<MatrixNode> elements = new ArrayList<>();
+        int rows = 0;
+        int columns = -1;
+        do {
+            expect('[');
+            int start = elements.size();
+            elements.add(parseExpression());
+            while (isSymbol(',')) {
+                next();
+                elements.add(parseExpression());
+            }
+            expect(']');
+
+            // Every row must be the same length
+            int length = elements.size() - start;
+            if (columns == -1) columns = length;
+            else if (length != columns) throw new SyntaxException();
+            rows++;
+        } while (isSymbol('['));
+        expect(']');
+
+        return new MatrixNode.Literal(rows, columns, elements.toArray(new MatrixNode[0]));
+    }
+
+    private boolean startsOperand() {
+        return mType == NUMBER || mType == NAME || isSymbol('(') || isSymbol('[');
+    }
+
+    private boolean isSymbol(char c) {
+        return mType == SYMBOL && mSymbol == c;
+    }
+
+    private void expect(char c) throws SyntaxException {
+        if (!isSymbol(c)) throw new SyntaxException();
+        next();
+    }
+
+    /**
+     * Reads the next token.
+     */
+    private void next() throws SyntaxException {
+        while (mPosition < mInput.length() && isIgnored(mInput.charAt(mPosition))) {
+            // A zero width no-break space only has meaning as the start of an inverse
+            if (mInput.startsWith("\uFEFF^-1", mPosition)) {
+                mType = INVERSE;
+                mPosition += 4;
+                return;
+            }
+            mPosition++;
+        }
+
+        if (mPosition == mInput.length()) {
+            if (mMissingParens > 0) {
+                mMissingParens--;
+                mType = SYMBOL;
+                mSymbol = ')';
+            } else {
+                mType = END;
+            }
+            return;
+        }
+
+        char c = mInput.charAt(mPosition);
+        if (Character.isDigit(c) || c == '.') {
+            readNumber();
+        } else if (Character.isLetter(c)) {
+            readName();
+        } else if (c == '\u221a') {
+            // The root sign isn't a letter, but it's a function all the same
+            mType = NAME;
+            mName = String.valueOf(c);
+            mPosition++;
+        } else if (c == '^' && mInput.startsWith("T", mPosition + 1)
+                && (mPosition + 2 == mInput.length() || !Character.isLetter(mInput.charAt(mPosition + 2)))) {
+            mType = TRANSPOSE;
+            mPosition += 2;
+        } else {
+            mType = SYMBOL;
+            mSymbol = c;
+            mPosition++;
+        }
+    }
+
+    private void readNumber() throws SyntaxException {
+        int start = mPosition;
+        while (mPosition < mInput.length()
+                && (Character.isDigit(mInput.charAt(mPosition)) || mInput.charAt(mPosition) == '.')) {
+            mPosition++;
+        }
+
+        // Scientific notation, like 1.5E-7
+        if (mPosition < mInput.length() && mInput.charAt(mPosition) == 'E') {
+            int exponent = mPosition + 1;
+            if (exponent < mInput.length() && (mInput.charAt(exponent) == '-' || mInput.charAt(exponent) == '+')) {
+                exponent++;
+            }
+            if (exponent < mInput.length() && Character.isDigit(mInput.charAt(exponent))) {
+                mPosition = exponent;
+                while (mPosition < mInput.length() && Character.isDigit(mInput.charAt(mPosition))) {
+                    mPosition++;
+                }
+            }
+        }
+
+        try {
+            mNumber = Double.parseDouble(mInput.substring(start, mPosition));
+        } catch (NumberFormatException e) {
+            throw new SyntaxException();
+        }
+        mType = NUMBER;
+    }
+
+    /**
+     * Reads a run of letters. Names may be written side by side, like sinx or e\u03c0, so the
+     * longest known name at the start of the run is read on its own. If none match, the whole run
+     * is read as a variable.
+     */
+    private void readName() {
+        int end = mPosition;
+        while (end < mInput.length() && Character.isLetter(mInput.charAt(end))) {
+            end++;
+        }
+
+        for (int length = end - mPosition; length > 0; length--) {
+            String name = mInput.substring(mPosition, mPosition + length);
+            if (FUNCTIONS.contains(name) || name.equals(E) || name.equals(PI)) {
+                end = mPosition + length;
+                break;
+            }
+        }
+
+        mType = NAME;
+        mName = mInput.substring(mPosition, end);
+        mPosition = end;
+    }
+
+    private static boolean isIgnored(char c) {
+        return Character.isWhitespace(c) || c == '\uFEFF' || c == Constants.POWER_PLACEHOLDER;
+    }
+}
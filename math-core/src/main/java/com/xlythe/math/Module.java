@@ -9,9 +9,10 @@ public class Module {
     private final Solver mSolver;
 
     // Used for formatting Dec, Bin, and Hex.
-    // Dec looks like 1,234,567. Bin is 1010 1010. Hex is 0F 1F 2F.
+    // Dec looks like 1,234,567. Bin is 1010 1010. Oct is 123 456. Hex is 0F 1F 2F.
     private static final int DECIMAL_SEPARATOR_DISTANCE = 3;
     private static final int BINARY_SEPARATOR_DISTANCE = 4;
+    private static final int OCTAL_SEPARATOR_DISTANCE = 3;
     private static final int HEXADEICMAL_SEPARATOR_DISTANCE = 2;
 
     Module(Solver solver) {
@@ -26,6 +27,10 @@ public class Module {
         return BINARY_SEPARATOR_DISTANCE;
     }
 
+    public int getOctSeparatorDistance() {
+        return OCTAL_SEPARATOR_DISTANCE;
+    }
+
     public int getHexSeparatorDistance() {
         return HEXADEICMAL_SEPARATOR_DISTANCE;
     }
@@ -42,6 +47,10 @@ public class Module {
         return Constants.BINARY_SEPARATOR;
     }
 
+    public char getOctSeparator() {
+        return Constants.OCTAL_SEPARATOR;
+    }
+
     public char getHexSeparator() {
         return Constants.HEXADECIMAL_SEPARATOR;
     }
@@ -0,0 +1,203 @@
+package com.xlythe.math;
+
+/**
+ * Formats doubles for display, the same way as {@code String.format(Locale.US, "%.Pg", value)}
+ * with trailing 0s stripped, and exponents written like 1.5e-7.
+ * <p>
+ * The shortest digits that identify the value are found once, with {@link Double#toString(double)},
+ * and are then rounded half up to P significant digits for every precision that's tried. The
+ * length of each candidate is worked out without building it, so only the result is written.
+ */
+final class NumberFormatter {
+    // The fewest significant digits that will be shown. A number that doesn't fit in the line
+    // with this many digits is shown anyway.
+    static final int MIN_PRECISION = 7;
+
+    private final boolean mNegative;
+    // The shortest digits that identify the value, without leading or trailing 0s
+    private final char[] mDigits = new char[20];
+    private int mCount;
+    // The power of ten of the first digit
+    private int mExponent;
+
+    // The digits, rounded to the precision being tried
+    private final char[] mRounded = new char[20];
+    private int mRoundedCount;
+    private int mRoundedExponent;
+    private int mPrecision;
+
+    private NumberFormatter(double value) {
+        mNegative = value < 0 || (value == 0 && 1 / value < 0);
+        if (value == 0) {
+            mDigits[0] = '0';
+            mCount = 1;
+            mExponent = 0;
+            return;
+        }
+
+        // Double.toString writes either 123.45 or 1.2345E67
+        String text = Double.toString(Math.abs(value));
+        int point = -1;
+        int i = 0;
+        for (; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '.') {
+                point = mCount;
+            } else if (c == 'E') {
+                break;
+            } else if (c != '0' || mCount != 0) {
+                mDigits[mCount++] = c;
+            } else if (point != -1) {
+                // A leading 0 after the decimal point, like in 0.001
+                mExponent--;
+            }
+        }
+        mExponent += point - 1;
+        if (i < text.length()) {
+            mExponent += Integer.parseInt(text.substring(i + 1));
+        }
+        while (mDigits[mCount - 1] == '0') {
+            mCount--;
+        }
+    }
+
+    /**
+     * Formats the value with as many significant digits as fit in maxWidth characters, but no
+     * fewer than {@link #MIN_PRECISION}. Returns an empty string if maxWidth is less than that.
+     *
+     * @throws SyntaxException if the value is NaN
+     */
+    static String format(double value, int maxWidth) throws SyntaxException {
+        if (maxWidth < MIN_PRECISION) {
+            return "";
+        }
+        if (Double.isNaN(value)) {
+            throw new SyntaxException();
+        }
+        if (Double.isInfinite(value)) {
+            return value > 0 ? Constants.INFINITY : "-" + Constants.INFINITY;
+        }
+
+        NumberFormatter formatter = new NumberFormatter(value);
+        for (int precision = maxWidth; precision >= MIN_PRECISION; precision--) {
+            formatter.round(precision);
+            if (formatter.length() <= maxWidth) {
+                break;
+            }
+        }
+        return formatter.write();
+    }
+
+    /**
+     * Formats the value with the given number of significant digits.
+     *
+     * @throws SyntaxException if the value is NaN
+     */
+    static String formatWithPrecision(double value, int precision) throws SyntaxException {
+        if (Double.isNaN(value)) {
+            throw new SyntaxException();
+        }
+        if (Double.isInfinite(value)) {
+            return value > 0 ? Constants.INFINITY : "-" + Constants.INFINITY;
+        }
+
+        NumberFormatter formatter = new NumberFormatter(value);
+        formatter.round(Math.max(precision, 1));
+        return formatter.write();
+    }
+
+    /**
+     * Rounds the digits half up to the given number of significant digits.
+     */
+    private void round(int precision) {
+        mPrecision = precision;
+        mRoundedExponent = mExponent;
+        if (mCount <= precision) {
+            System.arraycopy(mDigits, 0, mRounded, 0, mCount);
+            mRoundedCount = mCount;
+            return;
+        }
+
+        System.arraycopy(mDigits, 0, mRounded, 0, precision);
+        mRoundedCount = precision;
+        if (mDigits[precision] >= '5') {
+            int i = precision - 1;
+            while (i >= 0 && mRounded[i] == '9') {
+                i--;
+            }
+            if (i < 0) {
+                // 999 rounds up to 1000
+                mRounded[0] = '1';
+                mRoundedCount = 1;
+                mRoundedExponent++;
+                return;
+            }
+            mRounded[i]++;
+            mRoundedCount = i + 1;
+        }
+        while (mRoundedCount > 1 && mRounded[mRoundedCount - 1] == '0') {
+            mRoundedCount--;
+        }
+    }
+
+    private boolean isScientific() {
+        return mRoundedExponent < -4 || mRoundedExponent >= mPrecision;
+    }
+
+    /**
+     * Returns how long the rounded value is, once written.
+     */
+    private int length() {
+        int length = mNegative ? 1 : 0;
+        if (isScientific()) {
+            length += mRoundedCount + (mRoundedCount > 1 ? 1 : 0) + 1;
+            if (mRoundedExponent < 0) length++;
+            length += digitCount(Math.abs(mRoundedExponent));
+        } else if (mRoundedExponent >= 0) {
+            int fraction = mRoundedCount - (mRoundedExponent + 1);
+            length += mRoundedExponent + 1 + (fraction > 0 ? fraction + 1 : 0);
+        } else {
+            // 0.00ddd
+            length += 2 - mRoundedExponent - 1 + mRoundedCount;
+        }
+        return length;
+    }
+
+    private String write() {
+        StringBuilder out = new StringBuilder(length());
+        if (mNegative) {
+            out.append('-');
+        }
+
+        if (isScientific()) {
+            out.append(mRounded[0]);
+            if (mRoundedCount > 1) {
+                out.append('.').append(mRounded, 1, mRoundedCount - 1);
+            }
+            out.append('e').append(mRoundedExponent);
+        } else if (mRoundedExponent >= 0) {
+            for (int i = 0; i <= mRoundedExponent; i++) {
+                out.append(i < mRoundedCount ? mRounded[i] : '0');
+            }
+            if (mRoundedCount > mRoundedExponent + 1) {
+                out.append('.').append(mRounded, mRoundedExponent + 1, mRoundedCount - mRoundedExponent - 1);
+            }
+        } else {
+            out.append("0.");
+            for (int i = -1; i > mRoundedExponent; i--) {
+                out.append('0');
+            }
+            out.append(mRounded, 0, mRoundedCount);
+        }
+        return out.toString();
+    }
+
+    private static int digitCount(int value) {
+        int count = 1;
+        while (value >= 10) {
+            value /= 10;
+            count++;
+        }
+        return count;
+    }
+}
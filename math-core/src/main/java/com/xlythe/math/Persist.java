@@ -16,9 +16,6 @@
 
 package com.xlythe.math;
 
-import android.content.Context;
-import android.util.Log;
-
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.DataInputStream;
@@ -33,13 +30,13 @@ public class Persist {
     private static final String TAG = Persist.class.getSimpleName();
     private static final int LAST_VERSION = 4;
     private static final String FILE_NAME = "calculator.data";
-    private final Context mContext;
+    private final Storage mStorage;
     private History mHistory = new History();
     private int mDeleteMode;
     private Base mMode;
 
-    public Persist(Context context) {
-        this.mContext = context;
+    public Persist(Storage storage) {
+        this.mStorage = storage;
     }
 
     public int getDeleteMode() {
@@ -60,7 +57,7 @@ public class Persist {
 
     public void load() {
         try {
-            InputStream is = new BufferedInputStream(mContext.openFileInput(FILE_NAME), 8192);
+            InputStream is = new BufferedInputStream(mStorage.openInput(FILE_NAME), 8192);
             DataInputStream in = new DataInputStream(is);
             int version = in.readInt();
             if (version > LAST_VERSION) {
@@ -86,7 +83,7 @@ public class Persist {
 
     public void save() {
         try {
-            OutputStream os = new BufferedOutputStream(mContext.openFileOutput(FILE_NAME, 0), 8192);
+            OutputStream os = new BufferedOutputStream(mStorage.openOutput(FILE_NAME), 8192);
             DataOutputStream out = new DataOutputStream(os);
             out.writeInt(LAST_VERSION);
             out.writeInt(mDeleteMode);
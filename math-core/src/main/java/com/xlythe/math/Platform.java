@@ -0,0 +1,27 @@
+package com.xlythe.math;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Connects the library to the platform it's running on.
+ * <p>
+ * The first Platform registered as a service, in META-INF/services/com.xlythe.math.Platform, is
+ * used. The Android library registers one. Without any, plain JVM defaults are used.
+ */
+public interface Platform {
+    /**
+     * Where log messages go, unless {@link Log#setLogger(Logger)} is called.
+     */
+    Logger getLogger();
+
+    /**
+     * Where graphs are computed, unless {@link GraphModule#setExecutor(Executor)} is called.
+     */
+    Executor getBackgroundExecutor();
+
+    /**
+     * Where graph listeners are called, unless {@link GraphModule#setCallbackExecutor(Executor)}
+     * is called.
+     */
+    Executor getCallbackExecutor();
+}
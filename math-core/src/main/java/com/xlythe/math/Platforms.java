@@ -0,0 +1,66 @@
+package com.xlythe.math;
+
+import java.util.Iterator;
+import java.util.ServiceLoader;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Level;
+
+/**
+ * Finds the {@link Platform} the library is running on.
+ */
+final class Platforms {
+    private static volatile Platform sPlatform;
+
+    private Platforms() {}
+
+    static Platform get() {
+        Platform platform = sPlatform;
+        if (platform == null) {
+            Iterator<Platform> platforms = ServiceLoader.load(Platform.class, Platform.class.getClassLoader()).iterator();
+            platform = platforms.hasNext() ? platforms.next() : new JvmPlatform();
+            sPlatform = platform;
+        }
+        return platform;
+    }
+
+    /**
+     * Logs with java.util.logging, computes graphs on the common pool, and calls listeners on
+     * whichever thread computed the graph.
+     */
+    private static final class JvmPlatform implements Platform {
+        private final Logger mLogger = new Logger() {
+            @Override
+            public void d(String tag, String message) {
+                java.util.logging.Logger.getLogger(tag).log(Level.FINE, message);
+            }
+
+            @Override
+            public void e(String tag, String message, Throwable throwable) {
+                java.util.logging.Logger.getLogger(tag).log(Level.SEVERE, message, throwable);
+            }
+        };
+
+        private final Executor mDirectExecutor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        };
+
+        @Override
+        public Logger getLogger() {
+            return mLogger;
+        }
+
+        @Override
+        public Executor getBackgroundExecutor() {
+            return ForkJoinPool.commonPool();
+        }
+
+        @Override
+        public Executor getCallbackExecutor() {
+            return mDirectExecutor;
+        }
+    }
+}
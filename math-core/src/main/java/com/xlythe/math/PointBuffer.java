@@ -0,0 +1,147 @@
+package com.xlythe.math;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A growable list of points on a graph, stored as interleaved x and y floats.
+ * <p>
+ * Unlike a List of Points, this doesn't allocate an object per point, and the backing array is in
+ * the same layout that Canvas.drawLines and Canvas.drawPoints expect. Clearing the buffer keeps its
+ * capacity, so a buffer can be reused for the next graph.
+ * <p>
+ * A curve may be made of several unconnected lines. Lines are separated by a break, which is stored
+ * as a point with NaN coordinates, and should not be connected to their neighbours when drawn.
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public class PointBuffer {
+    private static final int DEFAULT_CAPACITY = 64;
+
+    // x0, y0, x1, y1, ...
+    private float[] mPoints;
+    private int mSize;
+
+    public PointBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public PointBuffer(int capacity) {
+        mPoints = new float[Math.max(capacity, 1) * 2];
+    }
+
+    public void add(float x, float y) {
+        ensureCapacity(mSize + 1);
+        mPoints[mSize * 2] = x;
+        mPoints[mSize * 2 + 1] = y;
+        mSize++;
+    }
+
+    /**
+     * Ends the current line, so that the next point starts a new one.
+     */
+    public void addBreak() {
+        if (mSize > 0 && !isBreak(mSize - 1)) {
+            add(Float.NaN, Float.NaN);
+        }
+    }
+
+    /**
+     * Returns true if the point at the given index separates two lines instead of being drawn.
+     */
+    public boolean isBreak(int index) {
+        return Float.isNaN(getX(index)) || Float.isNaN(getY(index));
+    }
+
+    public void addAll(PointBuffer buffer) {
+        ensureCapacity(mSize + buffer.mSize);
+        System.arraycopy(buffer.mPoints, 0, mPoints, mSize * 2, buffer.mSize * 2);
+        mSize += buffer.mSize;
+    }
+
+    public float getX(int index) {
+        checkIndex(index);
+        return mPoints[index * 2];
+    }
+
+    public float getY(int index) {
+        checkIndex(index);
+        return mPoints[index * 2 + 1];
+    }
+
+    /**
+     * Returns the number of points in the buffer.
+     */
+    public int size() {
+        return mSize;
+    }
+
+    public boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    /**
+     * Returns the number of points the buffer can hold before it needs to grow.
+     */
+    public int capacity() {
+        return mPoints.length / 2;
+    }
+
+    /**
+     * Grows the buffer so that it can hold at least the given number of points.
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity * 2 > mPoints.length) {
+            mPoints = Arrays.copyOf(mPoints, Math.max(capacity * 2, mPoints.length * 2));
+        }
+    }
+
+    /**
+     * Removes every point, but keeps the backing array so that it can be filled again.
+     */
+    public void clear() {
+        mSize = 0;
+    }
+
+    /**
+     * Returns the backing array of interleaved x and y values. Only the first {@code size() * 2}
+     * values are valid, and the array is replaced whenever the buffer grows.
+     */
+    public float[] getPoints() {
+        return mPoints;
+    }
+
+    /**
+     * Returns a copy of the interleaved x and y values, trimmed to size.
+     */
+    public float[] toArray() {
+        return Arrays.copyOf(mPoints, mSize * 2);
+    }
+
+    /**
+     * Returns a read-only List view of the buffer. Points are created as they're read, and the
+     * view reflects any later changes to the buffer.
+     */
+    public List<Point> asList() {
+        return new PointList();
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + mSize);
+        }
+    }
+
+    private class PointList extends AbstractList<Point> implements RandomAccess {
+        @Override
+        public Point get(int index) {
+            return new Point(getX(index), getY(index));
+        }
+
+        @Override
+        public int size() {
+            return mSize;
+        }
+    }
+}
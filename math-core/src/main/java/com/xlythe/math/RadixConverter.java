@@ -0,0 +1,179 @@
+package com.xlythe.math;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads and writes arbitrarily large numbers in any radix from 2 to 16.
+ * <p>
+ * Digits are handled a chunk at a time, where a chunk is as many digits as fit in a long. Long
+ * numbers are split in half at a power of the radix, and each half is converted on its own, so
+ * the work is dominated by a few large multiplications or divisions instead of one per chunk.
+ */
+final class RadixConverter {
+    // Numbers with at most this many chunks are converted one chunk at a time
+    private static final int SPLIT_THRESHOLD_CHUNKS = 16;
+    private static final RadixConverter[] CONVERTERS = new RadixConverter[17];
+
+    static {
+        for (int radix = 2; radix < CONVERTERS.length; radix++) {
+            CONVERTERS[radix] = new RadixConverter(radix);
+        }
+    }
+
+    private final int mRadix;
+    // How many digits fit in a long, and radix^that
+    private final int mChunkDigits;
+    private final long mChunkPower;
+    // mPowers[k] is radix^(mChunkDigits * 2^k). Filled in as needed.
+    private final List<BigInteger> mPowers = new ArrayList<>();
+
+    /**
+     * Returns the converter for a radix from 2 to 16. Converters are shared, and safe to use
+     * from any thread.
+     */
+    static RadixConverter forRadix(int radix) {
+        return CONVERTERS[radix];
+    }
+
+    private RadixConverter(int radix) {
+        mRadix = radix;
+        int digits = 0;
+        long power = 1;
+        while (power <= Long.MAX_VALUE / radix / radix) {
+            power *= radix;
+            digits++;
+        }
+        mChunkDigits = digits;
+        mChunkPower = power;
+    }
+
+    int getRadix() {
+        return mRadix;
+    }
+
+    /**
+     * Returns how many digits can be read into a long without overflowing.
+     */
+    int getChunkDigits() {
+        return mChunkDigits;
+    }
+
+    /**
+     * Reads the digits between start and end. No digits reads as 0.
+     *
+     * @throws NumberFormatException if a character isn't a digit in this radix.
+     */
+    BigInteger parse(CharSequence text, int start, int end) {
+        int chunks = (end - start + mChunkDigits - 1) / mChunkDigits;
+        if (chunks <= SPLIT_THRESHOLD_CHUNKS) {
+            BigInteger value = BigInteger.ZERO;
+            BigInteger chunkPower = BigInteger.valueOf(mChunkPower);
+            // The first chunk takes whatever's left over, so that the rest are full
+            int chunkEnd = start + (end - start) - (chunks - 1) * mChunkDigits;
+            for (int i = start; i < end; i = chunkEnd, chunkEnd += mChunkDigits) {
+                value = value.multiply(i == start ? BigInteger.ONE : chunkPower)
+                        .add(BigInteger.valueOf(parseChunk(text, i, chunkEnd)));
+            }
+            return value;
+        }
+
+        // Split off the largest power of two chunks that leaves something on the left
+        int level = 0;
+        while ((mChunkDigits << (level + 1)) < end - start) {
+            level++;
+        }
+        int split = end - (mChunkDigits << level);
+        return parse(text, start, split).multiply(power(level)).add(parse(text, split, end));
+    }
+
+    /**
+     * Reads up to a chunk of digits.
+     *
+     * @throws NumberFormatException if a character isn't a digit in this radix.
+     */
+    long parseChunk(CharSequence text, int start, int end) {
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = Character.digit(text.charAt(i), mRadix);
+            if (digit == -1) {
+                throw new NumberFormatException(text.subSequence(start, end) + " is not a number in base " + mRadix);
+            }
+            value = value * mRadix + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Writes a non-negative number in upper case, padded with leading 0s to at least minDigits.
+     */
+    void append(StringBuilder out, BigInteger value, int minDigits) {
+        if (value.bitLength() < 63) {
+            appendChunk(out, value.longValue(), minDigits);
+            return;
+        }
+
+        int chunks = (int) (value.bitLength() / (Math.log(mChunkPower) / Math.log(2))) + 1;
+        if (chunks <= SPLIT_THRESHOLD_CHUNKS) {
+            String digits = value.toString(mRadix);
+            for (int i = digits.length(); i < minDigits; i++) {
+                out.append('0');
+            }
+            for (int i = 0; i < digits.length(); i++) {
+                out.append(Character.toUpperCase(digits.charAt(i)));
+            }
+            return;
+        }
+
+        // Split at the largest power of two chunks that's no more than about half the number
+        int level = 0;
+        while (power(level + 1).bitLength() <= value.bitLength() / 2 + 1) {
+            level++;
+        }
+        int lowDigits = mChunkDigits << level;
+        BigInteger[] parts = value.divideAndRemainder(power(level));
+        append(out, parts[0], minDigits - lowDigits);
+        append(out, parts[1], lowDigits);
+    }
+
+    /**
+     * Writes a non-negative long in upper case, padded with leading 0s to at least minDigits.
+     */
+    void appendChunk(StringBuilder out, long value, int minDigits) {
+        // Digits come out smallest first, so they're reversed once they've all been written
+        int start = out.length();
+        do {
+            out.append(Character.toUpperCase(Character.forDigit((int) (value % mRadix), mRadix)));
+            value /= mRadix;
+        } while (value != 0);
+        while (out.length() - start < minDigits) {
+            out.append('0');
+        }
+        for (int i = start, j = out.length() - 1; i < j; i++, j--) {
+            char c = out.charAt(i);
+            out.setCharAt(i, out.charAt(j));
+            out.setCharAt(j, c);
+        }
+    }
+
+    /**
+     * Returns radix^digits.
+     */
+    BigInteger pow(int digits) {
+        return BigInteger.valueOf(mRadix).pow(digits);
+    }
+
+    private BigInteger power(int level) {
+        synchronized (mPowers) {
+            if (mPowers.isEmpty()) {
+                mPowers.add(BigInteger.valueOf(mChunkPower));
+            }
+            while (mPowers.size() <= level) {
+                BigInteger last = mPowers.get(mPowers.size() - 1);
+                mPowers.add(last.multiply(last));
+            }
+            return mPowers.get(level);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.xlythe.math;
+
+import org.ejml.data.DMatrix;
+import org.ejml.data.DMatrixRMaj;
+import org.ejml.data.DMatrixSparseCSC;
+import org.ejml.ops.DConvertMatrixStruct;
+import org.ejml.simple.SimpleMatrix;
+import org.javia.arity.Complex;
+
+/**
+ * The value of a solved equation: either a complex number or a matrix.
+ * <p>
+ * The value is kept as a number, and only turned into text when {@link #getText()} is called.
+ * Callers that need the number should read it directly instead of parsing the text.
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public final class SolveResult {
+    private final Solver mSolver;
+    // Zero for matrices
+    private final double mReal;
+    private final double mImaginary;
+    // Null for numbers. Either a DMatrixRMaj or a DMatrixSparseCSC.
+    private final DMatrix mMatrix;
+    // Numbers from equations with matrices are written the way the matrix module writes them
+    private final boolean mMatrixSyntax;
+    // The settings the equation was solved with
+    private final Base mBase;
+    private final int mLineLength;
+    private final Localizer mLocalizer;
+    private String mText;
+
+    SolveResult(Solver solver, double real, double imaginary) {
+        this(solver, real, imaginary, null, false);
+    }
+
+    SolveResult(Solver solver, double value, boolean matrixSyntax) {
+        this(solver, value, 0, null, matrixSyntax);
+    }
+
+    SolveResult(Solver solver, DMatrix matrix) {
+        this(solver, 0, 0, matrix, true);
+    }
+
+    private SolveResult(Solver solver, double real, double imaginary, DMatrix matrix, boolean matrixSyntax) {
+        mSolver = solver;
+        mReal = real;
+        mImaginary = imaginary;
+        mMatrix = matrix;
+        mMatrixSyntax = matrixSyntax;
+        mBase = solver.getBase();
+        mLineLength = solver.getLineLength();
+        mLocalizer = matrixSyntax ? null : solver.getLocalizer();
+    }
+
+    public boolean isMatrix() {
+        return mMatrix != null;
+    }
+
+    /**
+     * Returns true if the result is a matrix that's stored sparse, because most of its elements
+     * are zero.
+     *
+     * @see MatrixModule#setSparseDensity(double)
+     */
+    public boolean isSparse() {
+        return mMatrix instanceof DMatrixSparseCSC;
+    }
+
+    /**
+     * Returns true if the result is a number without an imaginary part.
+     */
+    public boolean isReal() {
+        return mMatrix == null && mImaginary == 0;
+    }
+
+    /**
+     * Returns the result as a complex number, or null if it's a matrix.
+     */
+    public Complex getComplex() {
+        return mMatrix != null ? null : new Complex(mReal, mImaginary);
+    }
+
+    /**
+     * Returns the real part of the result.
+     *
+     * @throws IllegalStateException if the result is a matrix
+     */
+    public double getReal() {
+        if (mMatrix != null) throw new IllegalStateException("The result is a matrix");
+        return mReal;
+    }
+
+    /**
+     * Returns the imaginary part of the result.
+     *
+     * @throws IllegalStateException if the result is a matrix
+     */
+    public double getImaginary() {
+        if (mMatrix != null) throw new IllegalStateException("The result is a matrix");
+        return mImaginary;
+    }
+
+    /**
+     * Returns a copy of the result as a dense matrix, or null if it's a number.
+     */
+    public SimpleMatrix getMatrix() {
+        if (mMatrix == null) return null;
+        if (mMatrix instanceof DMatrixSparseCSC) {
+            return SimpleMatrix.wrap(DConvertMatrixStruct.convert((DMatrixSparseCSC) mMatrix, (DMatrixRMaj) null));
+        }
+        return SimpleMatrix.wrap(((DMatrixRMaj) mMatrix).copy());
+    }
+
+    boolean hasMatrixSyntax() {
+        return mMatrixSyntax;
+    }
+
+    /**
+     * Returns the result the way MatrixModule works with it: a Double, a DMatrixRMaj or a
+     * DMatrixSparseCSC.
+     */
+    Object getMatrixValue() {
+        return mMatrix != null ? mMatrix : (Object) mReal;
+    }
+
+    /**
+     * Returns the result as text, the way {@link Solver#solve(String)} does, with the base,
+     * line length and localization the equation was solved with. The text is made the first
+     * time it's asked for, then kept.
+     */
+    public String getText() throws SyntaxException {
+        if (mText == null) {
+            mText = mSolver.format(this, mBase, mLineLength, mLocalizer);
+        }
+        return mText;
+    }
+
+    /**
+     * Returns the result as text in another base and line length. The text isn't kept.
+     */
+    public String getText(Base base, int lineLength) throws SyntaxException {
+        if (base == mBase && lineLength == mLineLength) {
+            return getText();
+        }
+        return mSolver.format(this, base, lineLength, mLocalizer);
+    }
+}
@@ -0,0 +1,508 @@
+package com.xlythe.math;
+
+import org.ejml.data.DMatrix;
+import org.javia.arity.Complex;
+import org.javia.arity.ContextFunction;
+import org.javia.arity.EvalContext;
+import org.javia.arity.Function;
+import org.javia.arity.Symbols;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Solves math problems
+ * <p>
+ * Supports:
+ * Basic math + functions (trig, pi)
+ * Matrices
+ * Hex and Bin conversion
+ * <p>
+ * A Solver is not thread safe, but Solvers do not share any state. Use one Solver per thread.
+ */
+@SuppressWarnings({"WeakerAccess", "unused", "ConstantConditions"})
+public class Solver {
+    private static final double[] NO_ARGS = new double[0];
+    private static final Complex[] NO_COMPLEX_ARGS = new Complex[0];
+
+    // Used for solving basic math. Each Solver has its own, so that Solvers on different threads
+    // can define variables without seeing each other's frames.
+    private final Symbols mSymbols = new Symbols();
+    // Everything passed to define(), one map per frame. Graphs compile with symbols of their own,
+    // and these are copied into them.
+    private final List<Map<String, Double>> mDefinitions = new ArrayList<>();
+    // Changes whenever the definitions do, so that graphs know which sampled curves are stale
+    private int mDefinitionsVersion;
+    // Used for evaluating compiled equations. Each Solver has its own, since sharing one
+    // between threads isn't safe.
+    private final EvalContext mEvalContext = new EvalContext();
+    private final BaseModule mBaseModule;
+    private final MatrixModule mMatrixModule;
+    private final GraphModule mGraphModule;
+    // Used to skip parsing equations we've already seen
+    private final ExpressionCache mExpressionCache = new ExpressionCache();
+    private int mLineLength = 8;
+    private Localizer mLocalizer;
+    // Null unless someone wants timings, so that solving doesn't pay for them otherwise
+    private SolverMetrics mMetrics;
+    // Solvers used by worker threads in solveAll. They're kept between batches so that their
+    // caches stay warm.
+    private ThreadLocal<Solver> mWorkers;
+
+    public Solver() {
+        mBaseModule = new BaseModule(this);
+        mMatrixModule = new MatrixModule(this);
+        mGraphModule = new GraphModule(this);
+        mDefinitions.add(new LinkedHashMap<String, Double>());
+    }
+
+    public static boolean equal(String a, String b) {
+        return clean(a).equals(clean(b));
+    }
+
+    public static String clean(String equation) {
+        equation = equation
+                .replace('-', Constants.MINUS)
+                .replace('/', Constants.DIV)
+                .replace('*', Constants.MUL);
+        // Replacing a string compiles a pattern, so only do it when there's something to replace
+        if (equation.contains(Constants.INFINITY)) {
+            equation = equation.replace(Constants.INFINITY, Constants.INFINITY_UNICODE);
+        }
+        return equation;
+    }
+
+    public static boolean isOperator(char c) {
+        return ("" +
+                Constants.PLUS +
+                Constants.MINUS +
+                Constants.DIV +
+                Constants.MUL +
+                Constants.POWER).indexOf(c) != -1;
+    }
+
+    public static boolean isOperator(String c) {
+        return isOperator(c.charAt(0));
+    }
+
+    public static boolean isNegative(String number) {
+        return number.startsWith(String.valueOf(Constants.MINUS)) || number.startsWith("-");
+    }
+
+    public static boolean isDigit(char number) {
+        return Constants.isNumberChar(number);
+    }
+
+    /**
+     * Input an equation as a string
+     * ex: sin(150)
+     * and get the result returned.
+     */
+    public String solve(String input) throws SyntaxException {
+        SolverMetrics metrics = mMetrics;
+        if (metrics == null) {
+            SolveResult result = solve(input, null);
+            return result == null ? "" : result.getText();
+        }
+
+        long start = System.nanoTime();
+        try {
+            SolveResult result = solve(input, metrics);
+            return result == null ? "" : result.getText();
+        } finally {
+            metrics.onStage(SolverMetrics.Stage.TOTAL, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Solves an equation like {@link #solve(String)}, but returns the value instead of text.
+     * The text is only made if {@link SolveResult#getText()} is called. Empty equations can't
+     * be solved this way.
+     */
+    public SolveResult solveForResult(String input) throws SyntaxException {
+        SolverMetrics metrics = mMetrics;
+        SolveResult result;
+        if (metrics == null) {
+            result = solve(input, null);
+        } else {
+            long start = System.nanoTime();
+            try {
+                result = solve(input, metrics);
+            } finally {
+                metrics.onStage(SolverMetrics.Stage.TOTAL, System.nanoTime() - start);
+            }
+        }
+
+        if (result == null) {
+            throw new SyntaxException("Nothing to solve");
+        }
+        return result;
+    }
+
+    /**
+     * Solves the input, or returns null if it's empty.
+     */
+    private SolveResult solve(String input, SolverMetrics metrics) throws SyntaxException {
+        // The stage that's running, so that errors can be blamed on it
+        SolverMetrics.Stage stage = SolverMetrics.Stage.PARSE;
+        try {
+            ExpressionCache.Key key = new ExpressionCache.Key(input, getBase(),
+                    mBaseModule.getPrecision(), mLineLength, mLocalizer);
+            ExpressionCache.Entry entry = mExpressionCache.get(key);
+            long time = 0;
+            if (metrics != null) {
+                if (entry != null) metrics.onCacheHit();
+                time = System.nanoTime();
+            }
+
+            if (entry == null) {
+                if (displayContainsMatrices(input)) {
+                    stage = SolverMetrics.Stage.MATRIX;
+                    Object value = mMatrixModule.evaluate(input);
+                    lap(metrics, stage, time);
+                    return value instanceof Double
+                            ? new SolveResult(this, (Double) value, true)
+                            : new SolveResult(this, (DMatrix) value);
+                }
+
+                if (input.trim().isEmpty()) {
+                    return null;
+                }
+
+                // Only equations that are about to be cached count as misses
+                mExpressionCache.onMiss();
+                if (metrics != null) metrics.onCacheMiss();
+
+                if (mLocalizer != null) {
+                    stage = SolverMetrics.Stage.LOCALIZE;
+                    input = mLocalizer.localize(input);
+                    time = lap(metrics, stage, time);
+                }
+
+                // Drop final operators (they can only result in error)
+                int size = input.length();
+                while (size > 0 && isOperator(input.charAt(size - 1))) {
+                    input = input.substring(0, size - 1);
+                    --size;
+                }
+
+                // Convert to decimal
+                stage = SolverMetrics.Stage.CONVERT_TO_DECIMAL;
+                String decimalInput = convertToDecimal(input);
+                time = lap(metrics, stage, time);
+
+                stage = SolverMetrics.Stage.PARSE;
+                entry = new ExpressionCache.Entry(compile(decimalInput), decimalInput);
+                mExpressionCache.put(key, entry);
+                time = lap(metrics, stage, time);
+            }
+
+            stage = SolverMetrics.Stage.EVALUATE;
+            SolveResult result = evaluate(entry);
+            lap(metrics, stage, time);
+            return result;
+        } catch (SyntaxException e) {
+            if (metrics != null) metrics.onError(stage, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Evaluates a compiled equation. Most equations are real, so they're evaluated with doubles
+     * first, which doesn't allocate. Only if that fails are they evaluated with complex numbers.
+     */
+    private SolveResult evaluate(ExpressionCache.Entry entry) {
+        Function function = entry.function;
+        if (!entry.complex) {
+            double value = function instanceof ContextFunction
+                    ? ((ContextFunction) function).eval(NO_ARGS, mEvalContext)
+                    : function.eval();
+            // Results that aren't real come back as NaN. Infinities are checked with complex
+            // numbers as well, since their imaginary part may not be 0.
+            if (!Double.isNaN(value) && !Double.isInfinite(value)) {
+                return new SolveResult(this, value, 0);
+            }
+            entry.complex = true;
+        }
+
+        Complex value = function instanceof ContextFunction
+                ? ((ContextFunction) function).eval(NO_COMPLEX_ARGS, mEvalContext)
+                : function.evalComplex();
+        return new SolveResult(this, value.re, value.im);
+    }
+
+    /**
+     * Writes a result as text in the given base and line length.
+     */
+    String format(SolveResult result, Base base, int lineLength, Localizer localizer) throws SyntaxException {
+        SolverMetrics metrics = mMetrics;
+        SolverMetrics.Stage stage = SolverMetrics.Stage.FORMAT;
+        long time = metrics == null ? 0 : System.nanoTime();
+        try {
+            String text;
+            if (result.hasMatrixSyntax()) {
+                text = mMatrixModule.format(result.getMatrixValue(), base);
+            } else {
+                text = format(result.getReal(), result.getImaginary(), base, lineLength);
+            }
+            time = lap(metrics, stage, time);
+
+            if (localizer != null) {
+                stage = SolverMetrics.Stage.LOCALIZE;
+                text = localizer.relocalize(text);
+                lap(metrics, stage, time);
+            }
+
+            return text.trim();
+        } catch (SyntaxException e) {
+            if (metrics != null) metrics.onError(stage, e);
+            throw e;
+        }
+    }
+
+    private String format(double re, double im, Base base, int lineLength) throws SyntaxException {
+        // Parts that are 0 aren't written, so they aren't formatted either
+        String real = re == 0 ? null : format(re, base, lineLength);
+        String imaginary = im == 0 ? null : format(im, base, lineLength);
+
+        if (re != 0 && im == 1) return real + "+" + "i";
+        else if (re != 0 && im > 0) return real + "+" + imaginary + "i";
+        else if (re != 0 && im == -1) return real + "-" + "i";
+        else if (re != 0 && im < 0) return real + imaginary + "i"; // Implicit -
+        else if (re != 0 && im == 0) return real;
+        else if (re == 0 && im == 1) return "i";
+        else if (re == 0 && im == -1) return "-i";
+        else if (re == 0 && im != 0) return imaginary + "i";
+        else return "0";
+    }
+
+    private String format(double value, Base base, int lineLength) throws SyntaxException {
+        return clean(mBaseModule.changeBase(NumberFormatter.format(value, lineLength), Base.DECIMAL, base));
+    }
+
+    /**
+     * Reports how long a stage took, if anyone is listening, and returns the time it finished.
+     */
+    private static long lap(SolverMetrics metrics, SolverMetrics.Stage stage, long start) {
+        if (metrics == null) return 0;
+        long now = System.nanoTime();
+        metrics.onStage(stage, now - start);
+        return now;
+    }
+
+    /**
+     * Solves every input in parallel on the common pool.
+     *
+     * @see #solveAll(List, ForkJoinPool)
+     */
+    public List<BatchResult> solveAll(List<String> inputs) {
+        return solveAll(inputs, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Solves every input in parallel on the given pool and waits for them to finish.
+     * <p>
+     * Results are returned in the same order as the inputs. An equation that can't be solved
+     * doesn't stop the batch; its result holds the SyntaxException instead. Each worker thread
+     * solves with its own copy of this Solver's base, line length, localization, and metrics, so
+     * variables defined on this Solver are not visible to the batch.
+     */
+    public List<BatchResult> solveAll(List<String> inputs, ForkJoinPool pool) {
+        BatchResult[] results = new BatchResult[inputs.size()];
+        pool.invoke(new BatchTask(this, getWorkers(), inputs.toArray(new String[0]), results));
+        return Collections.unmodifiableList(Arrays.asList(results));
+    }
+
+    /**
+     * Solves every input in parallel on the common pool without waiting for them to finish.
+     *
+     * @see #solveAll(List, ForkJoinPool)
+     */
+    public Future<List<BatchResult>> solveAsync(List<String> inputs) {
+        return solveAsync(inputs, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Solves every input in parallel on the given pool without waiting for them to finish.
+     *
+     * @see #solveAll(List, ForkJoinPool)
+     */
+    public Future<List<BatchResult>> solveAsync(List<String> inputs, ForkJoinPool pool) {
+        final BatchResult[] results = new BatchResult[inputs.size()];
+        final BatchTask task = new BatchTask(this, getWorkers(), inputs.toArray(new String[0]), results);
+        return pool.submit(new Callable<List<BatchResult>>() {
+            @Override
+            public List<BatchResult> call() {
+                task.invoke();
+                return Collections.unmodifiableList(Arrays.asList(results));
+            }
+        });
+    }
+
+    private ThreadLocal<Solver> getWorkers() {
+        if (mWorkers == null) {
+            mWorkers = new ThreadLocal<Solver>() {
+                @Override
+                protected Solver initialValue() {
+                    return new Solver();
+                }
+            };
+        }
+        return mWorkers;
+    }
+
+    public double eval(String input) throws SyntaxException {
+        try {
+            return mSymbols.eval(input);
+        } catch (org.javia.arity.SyntaxException e) {
+            throw SyntaxException.from(e);
+        }
+    }
+
+    /**
+     * Compiles a decimal equation without any free variables, so that it can be evaluated
+     * repeatedly without being parsed again.
+     */
+    Function compile(String decimalInput) throws SyntaxException {
+        if (Symbols.isDefinition(decimalInput)) {
+            throw new SyntaxException("Definitions cannot be solved: " + decimalInput);
+        }
+
+        Function function;
+        try {
+            function = mSymbols.compile(decimalInput);
+        } catch (org.javia.arity.SyntaxException e) {
+            throw SyntaxException.from(e);
+        }
+        if (function.arity() != 0) {
+            throw new SyntaxException("Unexpected variables in " + decimalInput);
+        }
+        return function;
+    }
+
+    public void pushFrame() {
+        mSymbols.pushFrame();
+        mDefinitions.add(new LinkedHashMap<String, Double>());
+        mDefinitionsVersion++;
+        mExpressionCache.clear();
+    }
+
+    public void popFrame() {
+        mSymbols.popFrame();
+        if (mDefinitions.size() > 1) {
+            mDefinitions.remove(mDefinitions.size() - 1);
+        }
+        mDefinitionsVersion++;
+        mExpressionCache.clear();
+    }
+
+    public void define(String var, double val) {
+        mSymbols.define(var, val);
+        mDefinitions.get(mDefinitions.size() - 1).put(var, val);
+        mDefinitionsVersion++;
+        mExpressionCache.clear();
+    }
+
+    /**
+     * Defines everything that was passed to {@link #define(String, double)}, in every frame that's
+     * still open, on other symbols. Symbols defined directly on {@link #getSymbols()} aren't
+     * copied.
+     */
+    void copyDefinitions(Symbols symbols) {
+        for (Map<String, Double> frame : mDefinitions) {
+            for (Map.Entry<String, Double> definition : frame.entrySet()) {
+                symbols.define(definition.getKey(), definition.getValue());
+            }
+        }
+    }
+
+    /**
+     * Returns a number that changes every time {@link #define(String, double)},
+     * {@link #pushFrame()} or {@link #popFrame()} is called.
+     */
+    int getDefinitionsVersion() {
+        return mDefinitionsVersion;
+    }
+
+    boolean displayContainsMatrices(String text) {
+        return getMatrixModule().isMatrix(text);
+    }
+
+    public String convertToDecimal(String input) throws SyntaxException {
+        return mBaseModule.changeBase(input, mBaseModule.getBase(), Base.DECIMAL);
+    }
+
+    String tryFormattingWithPrecision(double value, int precision) throws SyntaxException {
+        return NumberFormatter.formatWithPrecision(value, precision);
+    }
+
+    /**
+     * Translates equations written in another language before they're solved, and translates
+     * results back. Pass null to turn translation off.
+     */
+    public void setLocalizer(Localizer localizer) {
+        mLocalizer = localizer;
+    }
+
+    public Localizer getLocalizer() {
+        return mLocalizer;
+    }
+
+    /**
+     * Reports timings and counters for every equation this Solver solves, including batches
+     * started with solveAll. Pass null to turn reporting off.
+     */
+    public void setMetrics(SolverMetrics metrics) {
+        mMetrics = metrics;
+    }
+
+    public SolverMetrics getMetrics() {
+        return mMetrics;
+    }
+
+    public void setLineLength(int length) {
+        mLineLength = length;
+    }
+
+    public int getLineLength() {
+        return mLineLength;
+    }
+
+    public Base getBase() {
+        return mBaseModule.getBase();
+    }
+
+    public void setBase(Base base) {
+        mBaseModule.setBase(base);
+    }
+
+    public BaseModule getBaseModule() {
+        return mBaseModule;
+    }
+
+    public MatrixModule getMatrixModule() {
+        return mMatrixModule;
+    }
+
+    public GraphModule getGraphModule() {
+        return mGraphModule;
+    }
+
+    /**
+     * Returns the cache of previously solved equations, along with its hit and miss counts.
+     */
+    public ExpressionCache getExpressionCache() {
+        return mExpressionCache;
+    }
+
+    public Symbols getSymbols() {
+        return mSymbols;
+    }
+}
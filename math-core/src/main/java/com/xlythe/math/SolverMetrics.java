@@ -0,0 +1,61 @@
+package com.xlythe.math;
+
+/**
+ * Receives timings and counters from a Solver, to find out where solving spends its time.
+ * <p>
+ * Set one with {@link Solver#setMetrics(SolverMetrics)}. Solvers without one skip all of the
+ * bookkeeping. Batches started with solveAll report to the same listener from several threads.
+ *
+ * @see HistogramMetrics
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public interface SolverMetrics {
+    /**
+     * The steps an equation goes through while being solved.
+     */
+    enum Stage {
+        // Translating the input and, separately, the result
+        LOCALIZE,
+        // Converting the input from the current base to decimal
+        CONVERT_TO_DECIMAL,
+        // Compiling the decimal input
+        PARSE,
+        // Solving an equation with matrices, from start to finish
+        MATRIX,
+        // Evaluating the compiled equation
+        EVALUATE,
+        // Turning the result into text. For results from solveForResult, this happens when the
+        // text is first asked for.
+        FORMAT,
+        // The whole call to solve
+        TOTAL
+    }
+
+    /**
+     * Called after each stage with how long it took, in nanoseconds. Cached equations skip
+     * straight to EVALUATE. Variables inside a matrix are solved as equations of their own, so
+     * their stages are reported during MATRIX.
+     */
+    void onStage(Stage stage, long nanos);
+
+    /**
+     * Called when an equation was already compiled.
+     */
+    void onCacheHit();
+
+    /**
+     * Called when an equation has to be compiled. Matrices are never cached, so they don't count
+     * as hits or misses.
+     */
+    void onCacheMiss();
+
+    /**
+     * Called when an equation can't be solved, with the stage that failed.
+     */
+    void onError(Stage stage, SyntaxException e);
+
+    /**
+     * Called for every matrix written in an equation, with its size.
+     */
+    void onMatrix(int rows, int columns);
+}
@@ -0,0 +1,23 @@
+package com.xlythe.math;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Somewhere {@link Persist} can keep its files.
+ */
+public interface Storage {
+    /**
+     * Opens a file that was saved earlier.
+     *
+     * @throws FileNotFoundException if the file was never saved
+     */
+    InputStream openInput(String name) throws IOException;
+
+    /**
+     * Opens a file to save into, replacing anything saved there before.
+     */
+    OutputStream openOutput(String name) throws IOException;
+}
@@ -0,0 +1,315 @@
+package com.xlythe.math;
+
+import org.javia.arity.Function;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Remembers explicit curves that have already been sampled, so that panning or zooming a graph
+ * only samples what's newly visible.
+ * <p>
+ * The axis is cut into tiles of a fixed number of pixels, aligned to multiples of the tile width.
+ * Pixel sizes are rounded down to a power of two, so zooming by less than a factor of two keeps
+ * the same tiles. Zooming out by a factor of two reuses the finer tiles, thinned out.
+ * <p>
+ * Every tile starts from the same evenly spaced samples, so curves graphed together share their
+ * x values and only add samples of their own where they need more detail.
+ */
+class TileCache {
+    // The width of each tile, in pixels
+    private static final int TILE_PIXELS = 256;
+    // How many tiles to remember
+    private static final int MAX_TILES = 512;
+    // When thinning out finer tiles, samples are kept at least this many pixels apart
+    private static final double MIN_SPACING = 0.5;
+
+    private final LinkedHashMap<Key, PointBuffer> mTiles = new LinkedHashMap<Key, PointBuffer>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, PointBuffer> eldest) {
+            return size() > MAX_TILES;
+        }
+    };
+
+    /**
+     * Samples each curve between its min and max into its buffer, drawing from and adding to the
+     * cache. Tiles that aren't cached are sampled in parallel on the pool, all curves at once, then
+     * joined back together in order.
+     *
+     * @param maxSamples The most times each curve may be evaluated, split evenly across its tiles.
+     *                   Each tile takes at least 2, and one more for each jump checked for a break.
+     * @return false if the work was cancelled before it finished.
+     */
+    boolean sample(List<Curve> curves, int maxSamples, Cancellable cancellable, ForkJoinPool pool) {
+        List<PointBuffer[]> tilesPerCurve = new ArrayList<>(curves.size());
+        List<SampleTask> missing = new ArrayList<>();
+        for (Curve curve : curves) {
+            tilesPerCurve.add(plan(curve, maxSamples, missing, cancellable));
+        }
+
+        if (missing.size() == 1) {
+            missing.get(0).compute();
+        } else if (!missing.isEmpty()) {
+            pool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(missing);
+                }
+            });
+        }
+        if (cancellable.isCancelled()) {
+            return false;
+        }
+
+        for (int i = 0; i < curves.size(); i++) {
+            for (PointBuffer tile : tilesPerCurve.get(i)) {
+                if (tile == null) {
+                    return false;
+                }
+                append(tile, curves.get(i).out);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Finds the tiles that cover a curve. Tiles that are cached, or can be built from finer tiles,
+     * are filled in now. A task is added for every other tile, to fill it in once it's sampled.
+     */
+    private PointBuffer[] plan(Curve curve, int maxSamples, List<SampleTask> missing, Cancellable cancellable) {
+        int level = floorLog2(curve.parameterPixel);
+        int valueLevel = floorLog2(curve.valuePixel);
+        double pixel = Math.scalb(1.0, level);
+        double tileWidth = TILE_PIXELS * pixel;
+
+        long first = (long) Math.floor(curve.min / tileWidth);
+        long last = (long) Math.floor(curve.max / tileWidth);
+        // Split the budget evenly. A tile always needs its two ends, even if that goes over.
+        int samplesPerTile = (int) Math.max(2, maxSamples / (last - first + 1));
+
+        PointBuffer[] tiles = new PointBuffer[(int) (last - first + 1)];
+        for (long index = first; index <= last; index++) {
+            Key key = new Key(curve.equation, curve.definitions, curve.swapAxes, level, valueLevel, index);
+            PointBuffer tile = get(key);
+            if (tile == null) {
+                Key firstHalf = new Key(curve.equation, curve.definitions, curve.swapAxes,
+                        level - 1, valueLevel - 1, 2 * index);
+                Key secondHalf = new Key(curve.equation, curve.definitions, curve.swapAxes,
+                        level - 1, valueLevel - 1, 2 * index + 1);
+                tile = decimate(firstHalf, secondHalf, pixel, curve.swapAxes);
+                if (tile != null) {
+                    put(key, tile);
+                }
+            }
+            if (tile == null) {
+                // Every task samples with its own sampler, so they can run side by side
+                AdaptiveSampler sampler = new AdaptiveSampler(curve.function, pixel, Math.scalb(1.0, valueLevel),
+                        samplesPerTile, curve.swapAxes);
+                missing.add(new SampleTask(sampler, key, index * tileWidth, (index + 1) * tileWidth,
+                        tiles, (int) (index - first), cancellable));
+            }
+            tiles[(int) (index - first)] = tile;
+        }
+        return tiles;
+    }
+
+    synchronized void clear() {
+        mTiles.clear();
+    }
+
+    private synchronized PointBuffer get(Key key) {
+        return mTiles.get(key);
+    }
+
+    private synchronized void put(Key key, PointBuffer tile) {
+        mTiles.put(key, tile);
+    }
+
+    /**
+     * Builds a tile out of the two tiles, half as wide, that cover the same stretch at twice the
+     * resolution. Returns null unless both are cached.
+     */
+    private PointBuffer decimate(Key firstHalf, Key secondHalf, double pixel, boolean swapAxes) {
+        PointBuffer a = get(firstHalf);
+        PointBuffer b = get(secondHalf);
+        if (a == null || b == null) {
+            return null;
+        }
+
+        PointBuffer joined = new PointBuffer(a.size() + b.size());
+        append(a, joined);
+        append(b, joined);
+
+        PointBuffer tile = new PointBuffer(joined.size());
+        double minSpacing = MIN_SPACING * pixel;
+        double lastKept = Double.NaN;
+        for (int i = 0; i < joined.size(); i++) {
+            if (joined.isBreak(i)) {
+                tile.addBreak();
+                lastKept = Double.NaN;
+                continue;
+            }
+
+            // Always keep the first and last point of each line, so that lines still meet
+            double t = swapAxes ? joined.getY(i) : joined.getX(i);
+            boolean endOfLine = i == joined.size() - 1 || joined.isBreak(i + 1);
+            if (Double.isNaN(lastKept) || endOfLine || Math.abs(t - lastKept) >= minSpacing) {
+                tile.add(joined.getX(i), joined.getY(i));
+                lastKept = t;
+            }
+        }
+        return tile;
+    }
+
+    /**
+     * Adds a tile onto the end of a curve. Neighbouring tiles both hold the point where they meet,
+     * so it's only added once.
+     */
+    private static void append(PointBuffer tile, PointBuffer out) {
+        if (tile.isEmpty()) {
+            return;
+        }
+
+        int last = out.size() - 1;
+        boolean sharesPoint = last >= 0 && !out.isBreak(last) && !tile.isBreak(0)
+                && out.getX(last) == tile.getX(0) && out.getY(last) == tile.getY(0);
+        if (!sharesPoint) {
+            out.addAll(tile);
+            return;
+        }
+
+        out.ensureCapacity(out.size() + tile.size() - 1);
+        for (int i = 1; i < tile.size(); i++) {
+            if (tile.isBreak(i)) {
+                out.addBreak();
+            } else {
+                out.add(tile.getX(i), tile.getY(i));
+            }
+        }
+    }
+
+    private static int floorLog2(double value) {
+        return Math.getExponent(value);
+    }
+
+    /**
+     * An explicit curve to be sampled, and the buffer to write it into.
+     */
+    static final class Curve {
+        // The equation the function was compiled from. Tiles are shared by every graph of the
+        // same equation.
+        final String equation;
+        // The Solver's definitions version the function was compiled with. Variables may have
+        // changed since tiles of an older version were sampled.
+        final int definitions;
+        // A function of one variable
+        final Function function;
+        // The size of a pixel along the function's input axis
+        final double parameterPixel;
+        // The size of a pixel along the function's output axis
+        final double valuePixel;
+        // True if the function's input is y and its output is x
+        final boolean swapAxes;
+        final double min;
+        final double max;
+        final PointBuffer out;
+
+        Curve(String equation, int definitions, Function function, double parameterPixel,
+              double valuePixel, boolean swapAxes, double min, double max, PointBuffer out) {
+            this.equation = equation;
+            this.definitions = definitions;
+            this.function = function;
+            this.parameterPixel = parameterPixel;
+            this.valuePixel = valuePixel;
+            this.swapAxes = swapAxes;
+            this.min = min;
+            this.max = max;
+            this.out = out;
+        }
+    }
+
+    /**
+     * Samples a single tile into its slot, then caches it. Leaves the slot empty if cancelled.
+     */
+    @SuppressWarnings("serial")
+    private final class SampleTask extends RecursiveAction {
+        private final AdaptiveSampler mSampler;
+        private final Key mKey;
+        private final double mMin;
+        private final double mMax;
+        private final PointBuffer[] mTiles;
+        private final int mSlot;
+        private final Cancellable mCancellable;
+
+        SampleTask(AdaptiveSampler sampler, Key key, double min, double max,
+                   PointBuffer[] tiles, int slot, Cancellable cancellable) {
+            mSampler = sampler;
+            mKey = key;
+            mMin = min;
+            mMax = max;
+            mTiles = tiles;
+            mSlot = slot;
+            mCancellable = cancellable;
+        }
+
+        @Override
+        protected void compute() {
+            if (mCancellable.isCancelled()) {
+                return;
+            }
+
+            PointBuffer tile = new PointBuffer();
+            if (mSampler.sample(mMin, mMax, tile, mCancellable)) {
+                put(mKey, tile);
+                mTiles[mSlot] = tile;
+            }
+        }
+    }
+
+    private static final class Key {
+        private final String mEquation;
+        private final int mDefinitions;
+        private final boolean mSwapAxes;
+        private final int mLevel;
+        private final int mValueLevel;
+        private final long mIndex;
+
+        Key(String equation, int definitions, boolean swapAxes, int level, int valueLevel, long index) {
+            mEquation = equation;
+            mDefinitions = definitions;
+            mSwapAxes = swapAxes;
+            mLevel = level;
+            mValueLevel = valueLevel;
+            mIndex = index;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+
+            Key key = (Key) o;
+            return mDefinitions == key.mDefinitions
+                    && mSwapAxes == key.mSwapAxes
+                    && mLevel == key.mLevel
+                    && mValueLevel == key.mValueLevel
+                    && mIndex == key.mIndex
+                    && mEquation.equals(key.mEquation);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = mEquation.hashCode();
+            result = 31 * result + mDefinitions;
+            result = 31 * result + (mSwapAxes ? 1 : 0);
+            result = 31 * result + mLevel;
+            result = 31 * result + mValueLevel;
+            result = 31 * result + (int) (mIndex ^ (mIndex >>> 32));
+            return result;
+        }
+    }
+}
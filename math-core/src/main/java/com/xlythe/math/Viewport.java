@@ -0,0 +1,75 @@
+package com.xlythe.math;
+
+/**
+ * The visible part of a graph, captured when the graph is requested so that it can be drawn on
+ * another thread.
+ */
+final class Viewport {
+    private final float mMinX;
+    private final float mMaxX;
+    private final float mMinY;
+    private final float mMaxY;
+    private final float mZoomLevel;
+    private final int mWidth;
+    private final int mHeight;
+    private final int mMaxSamples;
+
+    Viewport(float minX, float maxX, float minY, float maxY, float zoomLevel,
+             int width, int height, int maxSamples) {
+        mMinX = minX;
+        mMaxX = maxX;
+        mMinY = minY;
+        mMaxY = maxY;
+        mZoomLevel = zoomLevel;
+        mWidth = width;
+        mHeight = height;
+        mMaxSamples = maxSamples;
+    }
+
+    float getMinX() {
+        return mMinX;
+    }
+
+    float getMaxX() {
+        return mMaxX;
+    }
+
+    float getMinY() {
+        return mMinY;
+    }
+
+    float getMaxY() {
+        return mMaxY;
+    }
+
+    float getZoomLevel() {
+        return mZoomLevel;
+    }
+
+    int getMaxSamples() {
+        return mMaxSamples;
+    }
+
+    /**
+     * The distance between grid lines when sampling on a fixed grid.
+     */
+    float getStep() {
+        return 0.1f * mZoomLevel;
+    }
+
+    /**
+     * The width of a pixel, in graph units. If the size of the graph isn't known, the grid step
+     * is used instead.
+     */
+    double getPixelWidth() {
+        return mWidth > 0 && mMaxX > mMinX ? (mMaxX - mMinX) / mWidth : getStep();
+    }
+
+    /**
+     * The height of a pixel, in graph units. If the size of the graph isn't known, the grid step
+     * is used instead.
+     */
+    double getPixelHeight() {
+        return mHeight > 0 && mMaxY > mMinY ? (mMaxY - mMinY) / mHeight : getStep();
+    }
+}
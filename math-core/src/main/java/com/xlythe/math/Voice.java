@@ -11,6 +11,9 @@ import java.util.regex.Pattern;
  */
 @SuppressWarnings({"WeakerAccess", "unused", "StringConcatenationInLoop"})
 public class Voice {
+    // Letters that don't belong in an equation
+    private static final Pattern LETTERS = Pattern.compile("[a-z']");
+
     public static String parseSpokenText(String text) {
         if (Locale.getDefault().equals(Locale.ENGLISH)) {
             List<String> exceptions = new LinkedList<>();
@@ -46,8 +49,8 @@ public class Voice {
     }
 
     private static String removeChars(String input, List<String> exceptions) {
-        Pattern pattern = Pattern.compile("[a-z']");
         String text = "";
+        Matcher matcher = LETTERS.matcher("");
         for (int i = 0; i < input.length(); i++) {
             for (String ex : exceptions) {
                 if (input.substring(i).startsWith(ex)) {
@@ -57,8 +60,7 @@ public class Voice {
             }
 
             // Check for characters that don't belong
-            Matcher matcher = pattern.matcher(input.substring(i, i + 1));
-            if (!matcher.matches()) text += input.substring(i, i + 1);
+            if (!matcher.reset(input.substring(i, i + 1)).matches()) text += input.substring(i, i + 1);
         }
         return text;
     }
@@ -0,0 +1,786 @@
+package com.xlythe.math;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.ejml.simple.SimpleMatrix;
+import org.javia.arity.Function;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class MathTest {
+    // Runs graphs on the calling thread, so that tests can check them as soon as they're requested
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable runnable) {
+            runnable.run();
+        }
+    };
+    private static final Cancellable NEVER_CANCELLED = new Cancellable() {
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+    };
+
+    @Test
+    public void testAddition() throws SyntaxException {
+        Solver solver = new Solver();
+        assertEquals("Addition", "3", solver.solve("1+2"));
+    }
+
+    @Test
+    public void testComplexMath() throws SyntaxException {
+        Solver solver = new Solver();
+        assertEquals("Trig", "1", solver.solve("sind(90)"));
+        assertEquals("Imaginary", "2i", solver.solve("sqrt(\u22124)"));
+        assertEquals("Complex", "5+i", solver.solve("(2+3i)\u00d7(1\u2212i)"));
+    }
+
+    @Test
+    public void testBaseConversion() throws SyntaxException {
+        Solver solver = new Solver();
+        assertEquals("Binary", "1111101000", solver.getBaseModule().changeBase("1000", Base.DECIMAL, Base.BINARY));
+        assertEquals("Hex", "3E8", solver.getBaseModule().changeBase("1000", Base.DECIMAL, Base.HEXADECIMAL));
+        assertEquals("Decimal", "1000", solver.getBaseModule().changeBase("3E8", Base.HEXADECIMAL, Base.DECIMAL));
+        assertEquals("Octal", "1750", solver.getBaseModule().changeBase("1000", Base.DECIMAL, Base.OCTAL));
+        assertEquals("Large", "56BC75E2D63100000", solver.getBaseModule().changeBase("100000000000000000000", Base.DECIMAL, Base.HEXADECIMAL));
+        assertEquals("Fraction", "10.5", solver.getBaseModule().changeBase("A.8", Base.HEXADECIMAL, Base.DECIMAL));
+        assertEquals("Expression", "C\u00d7(1.8+F)", solver.getBaseModule().changeBase("1100\u00d7(1.1+1111)", Base.BINARY, Base.HEXADECIMAL));
+    }
+
+    @Test
+    public void testNumberFormatting() throws SyntaxException {
+        assertEquals("Fraction", "0.3333333", NumberFormatter.format(1.0 / 3, 9));
+        assertEquals("Rounding", "10", NumberFormatter.format(9.99999999, 8));
+        assertEquals("Scientific", "1.234568e9", NumberFormatter.format(1234567890, 8));
+        assertEquals("Small", "1.5e-7", NumberFormatter.format(1.5e-7, 8));
+    }
+
+    @Test
+    public void testBaseFormatting() {
+        Solver solver = new Solver();
+        solver.setBase(Base.DECIMAL);
+        assertEquals("Decimal", "1,000", solver.getBaseModule().groupSentence("1000", -1));
+        solver.setBase(Base.BINARY);
+        assertEquals("Decimal", "11 1110 1000", solver.getBaseModule().groupSentence("1111101000", -1));
+        solver.setBase(Base.HEXADECIMAL);
+        assertEquals("Decimal", "3 E8", solver.getBaseModule().groupSentence("3E8", -1));
+    }
+
+    @Test
+    public void testMatrices() throws SyntaxException {
+        Solver solver = new Solver();
+
+        assertEquals("Matrix", true, solver.displayContainsMatrices("[[0]]+[[1]]"));
+        assertEquals("Matrix", false, solver.displayContainsMatrices("1+2"));
+
+        assertEquals("Matrix", false, solver.getMatrixModule().isMatrix("0"));
+        assertEquals("Matrix", true, solver.getMatrixModule().isMatrix("[[0]]"));
+
+        assertEquals("Matrix", "[[1]]", solver.solve("[[0]]+[[1]]"));
+        assertEquals("Matrix", "[[1,1]]", solver.solve("[[0,0]]+[[1,1]]"));
+        assertEquals("Matrix", "[[1,1][1,1]]", solver.solve("[[0,0][0,0]]+[[1,1][1,1]]"));
+    }
+
+    @Test
+    public void testMatrixExpressions() throws SyntaxException {
+        Solver solver = new Solver();
+
+        assertEquals("Matrix", "[[7,10][15,22]]", solver.solve("[[1,2][3,4]]\u00d7[[1,2][3,4]]"));
+        assertEquals("Matrix", "[[3,5]]", solver.solve("2\u00d7[[1,2]]+1"));
+        assertEquals("Matrix", "[[1,3][2,4]]", solver.solve("[[1,2][3,4]]^T"));
+        assertEquals("Matrix", "[[56]]", solver.solve("[[4]]\u00d72\u00d7(3+4)"));
+        assertEquals("Matrix", "[[\u22121,\u22122]]", solver.solve("\u2212[[1,2]]"));
+        assertEquals("Matrix", "[[3,6]]", solver.solve("[[1,2]]\u00d7(3"));
+        assertEquals("Matrix", "[[2,6]]", solver.getMatrixModule().evaluateMatrices("[[1+1,2\u00d73]]"));
+        assertEquals("Matrix", "[[89,55][55,34]]", solver.solve("[[1,1][1,0]]^10"));
+        assertEquals("Matrix", "[[1,0][0,1]]", solver.solve("[[1,2][3,4]]^0"));
+        assertEquals("Matrix", "[[0.5,0][0,0.25]]", solver.solve("[[2,0][0,4]]^\u22121"));
+        assertEquals("Matrix", "[[1,0.75]]", solver.solve("[[2,4]]\u00f7[[2,1][0,4]]"));
+        assertEquals("Matrix", "[[1,0][0,0.5]]", solver.solve("2\u00f7[[2,0][0,4]]"));
+        assertEquals("Matrix", "[[2,0][0,3]]", solver.solve("\u221a[[4,0][0,9]]"));
+        assertEquals("Matrix", "[[2,0][0,3]]", solver.solve("sqrt[[4,0][0,9]]"));
+
+        try {
+            solver.solve("[[1,2][3]]");
+            fail("Rows of different lengths should not parse");
+        } catch (SyntaxException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testConcurrentMatrices() throws SyntaxException {
+        Solver solver = new Solver();
+        solver.getMatrixModule().setConcurrencyThreshold(1);
+
+        assertEquals("Product", "[[7,10][15,22]]", solver.solve("[[1,2][3,4]]\u00d7[[1,2][3,4]]"));
+        assertEquals("Power", "[[89,55][55,34]]", solver.solve("[[1,1][1,0]]^10"));
+        assertEquals("Quotient", "[[1,0.75]]", solver.solve("[[2,4]]\u00f7[[2,1][0,4]]"));
+        // Through the eigen decomposition and SVD, which round
+        assertMatrix("Symmetric power", new double[][] {{0.5, 0.5}, {0.5, 0.5}},
+                solver.solveForResult("[[0.5,0.5][0.5,0.5]]^32"));
+        assertMatrix("Singular", new double[][] {{0.25, 0.25}, {0.25, 0.25}},
+                solver.solveForResult("[[1,1][1,1]]^\u22121"));
+        assertMatrix("Singular quotient", new double[][] {{0.5, 0.5}},
+                solver.solveForResult("[[1,1]]\u00f7[[1,1][1,1]]"));
+        assertMatrix("Wide quotient", new double[][] {{0.2, 0.4}, {0.2, 0.4}},
+                solver.solveForResult("[[1][1]]\u00f7[[1][2]]"));
+    }
+
+    private static void assertMatrix(String message, double[][] expected, SolveResult result) {
+        SimpleMatrix actual = result.getMatrix();
+        assertEquals(message, expected.length, actual.numRows());
+        assertEquals(message, expected[0].length, actual.numCols());
+        for (int i = 0; i < expected.length; i++) {
+            for (int j = 0; j < expected[i].length; j++) {
+                assertEquals(message, expected[i][j], actual.get(i, j), 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void testSparseMatrices() throws SyntaxException {
+        Solver solver = new Solver();
+        String twos = diagonal(32, "2");
+        String halves = diagonal(32, "0.5");
+
+        assertTrue("Sparse", solver.solveForResult(twos).isSparse());
+        assertEquals("Product", diagonal(32, "4"), solver.solve(twos + "\u00d7" + twos));
+        assertEquals("Sum", diagonal(32, "4"), solver.solve(twos + "+" + twos));
+        assertEquals("Transpose", twos, solver.solve(twos + "^T"));
+        assertEquals("Quotient", diagonal(32, "1"), solver.solve(twos + "\u00f7" + twos));
+        assertEquals("Inverse", halves, solver.solve(twos + "^\u22121"));
+        // Adding a scalar fills in the zeros
+        assertFalse("Dense", solver.solveForResult(twos + "+1").isSparse());
+
+        solver.getMatrixModule().setSparseDensity(0);
+        assertFalse("Disabled", solver.solveForResult(twos).isSparse());
+    }
+
+    private static String diagonal(int size, String value) {
+        StringBuilder builder = new StringBuilder("[");
+        for (int row = 0; row < size; row++) {
+            builder.append('[');
+            for (int column = 0; column < size; column++) {
+                if (column > 0) builder.append(',');
+                builder.append(row == column ? value : "0");
+            }
+            builder.append(']');
+        }
+        return builder.append(']').toString();
+    }
+
+    @Test
+    public void testExpressionCache() throws SyntaxException {
+        Solver solver = new Solver();
+        ExpressionCache cache = solver.getExpressionCache();
+
+        assertEquals("Miss", "3", solver.solve("1+2"));
+        assertEquals("Hit", "3", solver.solve("1+2"));
+        assertEquals("Hits", 1, cache.getHitCount());
+        assertEquals("Misses", 1, cache.getMissCount());
+
+        // The same input in another base is compiled separately
+        solver.setBase(Base.HEXADECIMAL);
+        assertEquals("Hex", "1F", solver.solve("F+10"));
+        assertEquals("Misses", 2, cache.getMissCount());
+
+        // Matrices aren't cached, so they aren't misses either
+        solver.setBase(Base.DECIMAL);
+        assertEquals("Matrix", "[[2]]", solver.solve("[[1]]+[[1]]"));
+        assertEquals("Matrix misses", 2, cache.getMissCount());
+
+        // Inputs are converted to decimal with the precision, so it's part of what's cached.
+        // 0.0101 is 0.3125, or 0.3 with one digit.
+        solver.setBase(Base.BINARY);
+        solver.getBaseModule().setPrecision(1);
+        assertEquals("Low precision", "100110", solver.solve("0.0101\u00d710000000"));
+        solver.getBaseModule().setPrecision(8);
+        assertEquals("Precision", "101000", solver.solve("0.0101\u00d710000000"));
+        solver.setBase(Base.DECIMAL);
+
+        int size = cache.size();
+        cache.setMaxSize(1);
+        assertEquals("Evictions", size - 1, cache.getEvictionCount());
+        assertEquals("Size", 1, cache.size());
+    }
+
+    @Test
+    public void testExpressionCacheLocalizer() throws SyntaxException {
+        Solver solver = new Solver();
+        ExpressionCache cache = solver.getExpressionCache();
+        Localizer localizer = new Localizer();
+        solver.setLocalizer(localizer);
+
+        assertEquals("Miss", "6", solver.solve("3\u00d72"));
+        assertEquals("Hit", "6", solver.solve("3\u00d72"));
+        assertEquals("Misses", 1, cache.getMissCount());
+
+        // Adding a translation may change how the same input is read, so it's compiled again
+        localizer.addTranslation(".", ",");
+        assertEquals("Recompiled", "6", solver.solve("3\u00d72"));
+        assertEquals("Misses", 2, cache.getMissCount());
+        assertEquals("Translated", "3", solver.solve("1,5\u00d72"));
+    }
+
+    @Test
+    public void testSolveResult() throws SyntaxException {
+        Solver solver = new Solver();
+
+        SolveResult number = solver.solveForResult("1\u00f78");
+        assertEquals("Real", 0.125, number.getReal(), 0);
+        assertEquals("Text", "0.125", number.getText());
+        assertEquals("Binary", "0.001", number.getText(Base.BINARY, 8));
+
+        SolveResult matrix = solver.solveForResult("[[1,2][3,4]]\u00d72");
+        assertTrue("Matrix", matrix.isMatrix());
+        assertEquals("Element", 8, matrix.getMatrix().get(1, 1), 0);
+        assertEquals("Matrix text", "[[2,4][6,8]]", matrix.getText());
+
+        // Variables in a matrix keep their full precision
+        solver.define("x", 1.0 / 3);
+        assertEquals("Variable", "[[1]]", solver.solve("[[3]]\u00d7x"));
+    }
+
+    @Test
+    public void testMetrics() throws SyntaxException {
+        Solver solver = new Solver();
+        HistogramMetrics metrics = new HistogramMetrics();
+        solver.setMetrics(metrics);
+
+        solver.solve("1+2");
+        solver.solve("1+2");
+        solver.solve("[[1,2][3,4]]+[[1,0][0,1]]");
+        try {
+            solver.solve("[[1,2][3]]");
+            fail("Rows of different lengths should not parse");
+        } catch (SyntaxException e) {
+            // Expected
+        }
+
+        HistogramMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals("Solves", 4, snapshot.getTiming(SolverMetrics.Stage.TOTAL).getCount());
+        assertEquals("Parses", 1, snapshot.getTiming(SolverMetrics.Stage.PARSE).getCount());
+        assertEquals("Evaluations", 2, snapshot.getTiming(SolverMetrics.Stage.EVALUATE).getCount());
+        assertEquals("Hits", 1, snapshot.getCacheHitCount());
+        assertEquals("Misses", 1, snapshot.getCacheMissCount());
+        assertEquals("Errors", 1, snapshot.getErrorCount(SolverMetrics.Stage.MATRIX));
+        assertEquals("Matrices", Long.valueOf(2), snapshot.getMatrixCounts().get("2x2"));
+
+        metrics.reset();
+        assertEquals("Reset", 0, metrics.snapshot().getTiming(SolverMetrics.Stage.TOTAL).getCount());
+    }
+
+    @Test
+    public void testConcurrentSolvers() throws Exception {
+        final String[] equations = {"1+2", "sind(90)", "2^10", "cos(0)\u00d73", "a\u00d72"};
+        final int threads = 8;
+
+        List<Callable<Boolean>> tasks = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            final int id = i;
+            tasks.add(new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws Exception {
+                    Solver solver = new Solver();
+                    solver.define("a", id);
+                    String[] expected = {"3", "1", "1024", "3", String.valueOf(id * 2)};
+                    for (int iteration = 0; iteration < 200; iteration++) {
+                        for (int j = 0; j < equations.length; j++) {
+                            assertEquals(equations[j], expected[j], solver.solve(equations[j]));
+                        }
+                    }
+                    return true;
+                }
+            });
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (Future<Boolean> future : executor.invokeAll(tasks)) {
+                // Rethrows any assertion failures from the worker threads
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testSolveAll() throws Exception {
+        Solver solver = new Solver();
+        List<String> inputs = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            inputs.add(i + "+1");
+        }
+        inputs.set(50, "1+)");
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            List<BatchResult> results = solver.solveAll(inputs, pool);
+            assertEquals("Size", inputs.size(), results.size());
+            for (int i = 0; i < inputs.size(); i++) {
+                BatchResult result = results.get(i);
+                assertEquals("Order", inputs.get(i), result.getInput());
+                if (i == 50) {
+                    assertFalse("Error", result.isSuccessful());
+                    assertNotNull("Error", result.getException());
+                } else {
+                    assertTrue("Success", result.isSuccessful());
+                    assertEquals("Result", String.valueOf(i + 1), result.getResult());
+                }
+            }
+
+            solver.setBase(Base.BINARY);
+            List<BatchResult> binary = solver.solveAsync(Arrays.asList("1+1", "11\u00d711"), pool).get();
+            assertEquals("Binary", "10", binary.get(0).getResult());
+            assertEquals("Binary", "1001", binary.get(1).getResult());
+
+            // Workers convert with the Solver's precision
+            solver.getBaseModule().setPrecision(1);
+            List<BatchResult> precise = solver.solveAll(Arrays.asList("0.0101\u00d710000000"), pool);
+            assertEquals("Precision", solver.solve("0.0101\u00d710000000"), precise.get(0).getResult());
+            assertEquals("Precision", "100110", precise.get(0).getResult());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testMarchingSquaresCircle() {
+        Function circle = circle(2);
+        float step = 0.1f;
+        PointBuffer loop = trace(circle, -5, 5, step);
+
+        // One line, closed where it started
+        int last = loop.size() - 2;
+        assertTrue("Break", loop.isBreak(loop.size() - 1));
+        for (int i = 0; i <= last; i++) {
+            assertFalse("One line", loop.isBreak(i));
+            double radius = Math.hypot(loop.getX(i), loop.getY(i));
+            assertEquals("Radius", 2, radius, step);
+        }
+        assertEquals("Closed", loop.getX(0), loop.getX(last), 1e-5f);
+        assertEquals("Closed", loop.getY(0), loop.getY(last), 1e-5f);
+    }
+
+    @Test
+    public void testMarchingSquaresAsymptote() {
+        // 1/x = y changes sign across x = 0 without being 0 there
+        Function reciprocal = new Function() {
+            @Override
+            public int arity() {
+                return 2;
+            }
+
+            @Override
+            public double eval(double x, double y) {
+                return 1 / x - y;
+            }
+        };
+        float step = 0.1f;
+        PointBuffer curve = trace(reciprocal, -5, 5, step);
+
+        assertFalse("Empty", curve.isEmpty());
+        for (int i = 0; i < curve.size(); i++) {
+            if (!curve.isBreak(i)) {
+                assertTrue("Asymptote", Math.abs(curve.getX(i)) > step);
+            }
+        }
+    }
+
+    @Test
+    public void testMarchingSquaresSaddle() {
+        // xy = 0.001, on a grid with a cell centered on the origin. The cell's corners alternate
+        // in sign, and its center decides that the branches in the first and third quadrants
+        // stay apart.
+        Function hyperbola = new Function() {
+            @Override
+            public int arity() {
+                return 2;
+            }
+
+            @Override
+            public double eval(double x, double y) {
+                return x * y - 0.001;
+            }
+        };
+        PointBuffer curve = trace(hyperbola, -1.05f, 1.05f, 0.1f);
+
+        int lines = 0;
+        float side = 0;
+        for (int i = 0; i < curve.size(); i++) {
+            if (curve.isBreak(i)) {
+                lines++;
+                side = 0;
+            } else if (side == 0) {
+                side = Math.signum(curve.getX(i));
+            } else {
+                assertEquals("Crosses the saddle", side, Math.signum(curve.getX(i)), 0);
+            }
+        }
+        assertEquals("Lines", 2, lines);
+    }
+
+    @Test
+    public void testMarchingSquaresBands() {
+        // 80 rows tall
+        Function circle = circle(4);
+        PointBuffer bands = trace(circle, -5, 5, 0.1f);
+
+        PointBuffer single = new PointBuffer();
+        assertTrue(new MarchingSquares(circle, -5, 5, -5, 5, 0.1f, Integer.MAX_VALUE)
+                .trace(single, NEVER_CANCELLED, ForkJoinPool.commonPool()));
+
+        assertEquals("Size", single.size(), bands.size());
+        for (int i = 0; i < single.size(); i++) {
+            assertEquals("Break", single.isBreak(i), bands.isBreak(i));
+            if (!single.isBreak(i)) {
+                assertEquals("X", single.getX(i), bands.getX(i), 0);
+                assertEquals("Y", single.getY(i), bands.getY(i), 0);
+            }
+        }
+    }
+
+    @Test
+    public void testMarchingSquaresCancelled() {
+        Function circle = circle(4);
+
+        // Cancelled partway through the bands
+        final AtomicInteger checks = new AtomicInteger();
+        Cancellable cancellable = new Cancellable() {
+            @Override
+            public boolean isCancelled() {
+                return checks.incrementAndGet() > 20;
+            }
+        };
+        PointBuffer out = new PointBuffer();
+        assertFalse(new MarchingSquares(circle, -5, 5, -5, 5, 0.1f)
+                .trace(out, cancellable, ForkJoinPool.commonPool()));
+        assertTrue("Empty", out.isEmpty());
+    }
+
+    @Test
+    public void testGraphCancelled() {
+        final GraphModule.GraphTask[] task = new GraphModule.GraphTask[1];
+        ForkJoinPool pool = new ForkJoinPool() {
+            @Override
+            public <T> T invoke(ForkJoinTask<T> work) {
+                // Cancel once the curve has been handed to the pool
+                task[0].cancel(true);
+                return super.invoke(work);
+            }
+        };
+        final List<Runnable> queued = new ArrayList<>();
+
+        GraphModule graphModule = new Solver().getGraphModule();
+        graphModule.setDomain(-5, 5);
+        graphModule.setRange(-5, 5);
+        graphModule.setResolution(100, 100);
+        graphModule.setForkJoinPool(pool);
+        graphModule.setExecutor(new Executor() {
+            @Override
+            public void execute(Runnable runnable) {
+                queued.add(runnable);
+            }
+        });
+        graphModule.setCallbackExecutor(DIRECT);
+        task[0] = graphModule.updateGraphs(Arrays.asList("X^2+Y^2=16"), new GraphModule.OnGraphsUpdatedListener() {
+            @Override
+            public void onGraphsUpdated(List<PointBuffer> results) {
+                fail("Called after being cancelled");
+            }
+        });
+
+        assertEquals("Queued", 1, queued.size());
+        queued.get(0).run();
+        assertTrue("Cancelled", task[0].isCancelled());
+        pool.shutdown();
+    }
+
+    /**
+     * Returns x^2 + y^2 - radius^2, which is 0 on a circle.
+     */
+    private static Function circle(final double radius) {
+        return new Function() {
+            @Override
+            public int arity() {
+                return 2;
+            }
+
+            @Override
+            public double eval(double x, double y) {
+                return x * x + y * y - radius * radius;
+            }
+        };
+    }
+
+    /**
+     * Traces f(x, y) = 0 over a square, and checks that it finished.
+     */
+    private static PointBuffer trace(Function function, float min, float max, float step) {
+        PointBuffer out = new PointBuffer();
+        MarchingSquares contour = new MarchingSquares(function, min, max, min, max, step);
+        assertTrue("Finished", contour.trace(out, NEVER_CANCELLED, ForkJoinPool.commonPool()));
+        return out;
+    }
+
+    @Test
+    public void testAdaptiveSamplerBreaks() {
+        Function tan = new Function() {
+            @Override
+            public int arity() {
+                return 1;
+            }
+
+            @Override
+            public double eval(double x) {
+                return Math.tan(x);
+            }
+        };
+
+        // Both while refining down to a pixel, and when the sample budget runs out first
+        for (int maxSamples : new int[] { 10000, 32 }) {
+            PointBuffer out = new PointBuffer();
+            AdaptiveSampler sampler = new AdaptiveSampler(tan, Math.PI / 100, 0.1, maxSamples, false);
+            assertTrue("Finished", sampler.sample(0, Math.PI, out, NEVER_CANCELLED));
+
+            boolean broken = false;
+            for (int i = 0; i < out.size(); i++) {
+                broken |= out.isBreak(i);
+            }
+            assertTrue("Break with " + maxSamples + " samples", broken);
+        }
+    }
+
+    @Test
+    public void testTileCache() {
+        final AtomicInteger evaluations = new AtomicInteger();
+        Function sin = new Function() {
+            @Override
+            public int arity() {
+                return 1;
+            }
+
+            @Override
+            public double eval(double x) {
+                evaluations.incrementAndGet();
+                return Math.sin(x);
+            }
+        };
+        TileCache cache = new TileCache();
+
+        // A pixel of 0.01 rounds down to 2^-7, so tiles are 2 wide. This covers 3 of them.
+        PointBuffer out = new PointBuffer();
+        assertTrue(sample(cache, sin, 0.01, 0, 5, 90, out));
+        assertTrue("Budget", evaluations.get() <= 90);
+        assertFalse("Empty", out.isEmpty());
+
+        // Panning by a tile only samples the new tile, the same as sampling it on its own
+        evaluations.set(0);
+        assertTrue(sample(cache, sin, 0.01, 3, 7.5, 10000, new PointBuffer()));
+        int panned = evaluations.getAndSet(0);
+        assertTrue(sample(new TileCache(), sin, 0.01, 6, 7.5, 10000, new PointBuffer()));
+        assertEquals("Panned", evaluations.getAndSet(0), panned);
+
+        // Zooming out by a factor of two builds the tile from the two finer tiles
+        out = new PointBuffer();
+        assertTrue(sample(cache, sin, 0.02, 0, 3.5, 10000, out));
+        assertEquals("Zoomed out", 0, evaluations.get());
+        assertEquals("Start", 0, out.getX(0), 0);
+        assertEquals("End", 4, out.getX(out.size() - 1), 0);
+    }
+
+    /**
+     * Samples a function of x, with pixels the same size on both axes, through the cache.
+     */
+    private static boolean sample(TileCache cache, Function function, double pixel,
+                                  double min, double max, int maxSamples, PointBuffer out) {
+        TileCache.Curve curve = new TileCache.Curve("f", 0, function, pixel, pixel, false, min, max, out);
+        return cache.sample(Arrays.asList(curve), maxSamples, NEVER_CANCELLED, ForkJoinPool.commonPool());
+    }
+
+    @Test
+    public void testVoice() {
+        // Voice only rewrites English
+        Locale locale = Locale.getDefault();
+        Locale.setDefault(Locale.ENGLISH);
+        try {
+            assertEquals("sin(30)", Voice.parseSpokenText("sign of 30"));
+            assertEquals("3-4", Voice.parseSpokenText("what's 3 minus 4"));
+            assertEquals("5/10%", Voice.parseSpokenText("5 divided by 10 percent"));
+            assertEquals("sqrt(16*2)", Voice.parseSpokenText("square root of 16 times 2"));
+            assertEquals(" sine of (30) minus 2 times 3", Voice.createSpokenText("sin(30)-2*3"));
+        } finally {
+            Locale.setDefault(locale);
+        }
+    }
+
+    @Test
+    public void testGraphVariables() {
+        Solver solver = new Solver();
+        solver.define("a", 2);
+
+        PointBuffer line = graph(solver, Arrays.asList("a\u00d7X")).get(0);
+        assertFalse("Empty", line.isEmpty());
+        for (int i = 0; i < line.size(); i++) {
+            assertEquals("Y", 2 * line.getX(i), line.getY(i), 1e-4);
+        }
+
+        // Graphing again at the same spot doesn't reuse curves sampled with the old value
+        solver.define("a", 3);
+        line = graph(solver, Arrays.asList("a\u00d7X")).get(0);
+        assertFalse("Empty", line.isEmpty());
+        for (int i = 0; i < line.size(); i++) {
+            assertEquals("Redefined", 3 * line.getX(i), line.getY(i), 1e-4);
+        }
+    }
+
+    @Test
+    public void testGraphListWithoutBreaks() {
+        GraphModule graphModule = new Solver().getGraphModule();
+        final List<List<Point>> results = new ArrayList<>();
+        graphModule.setDomain(-5, 5);
+        graphModule.setRange(-5, 5);
+        graphModule.setResolution(100, 100);
+        graphModule.setExecutor(DIRECT);
+        graphModule.setCallbackExecutor(DIRECT);
+        graphModule.updateGraph("1\u00f7X", new GraphModule.OnGraphUpdatedListener() {
+            @Override
+            public void onGraphUpdated(List<Point> result) {
+                results.add(result);
+            }
+        });
+
+        // 1/x breaks at 0, but listeners that take a List draw it as one line
+        assertEquals("Callbacks", 1, results.size());
+        assertFalse("Empty", results.get(0).isEmpty());
+        for (Point point : results.get(0)) {
+            assertFalse("Break", Float.isNaN(point.getX()) || Float.isNaN(point.getY()));
+        }
+    }
+
+    @Test
+    public void testGraphsInOrder() {
+        List<PointBuffer> series = graph(new Solver(), Arrays.asList("2\u00d7X", "X^2+Y^2=4", "\u2212X"));
+        assertEquals("Series", 3, series.size());
+        for (int i = 0; i < series.size(); i++) {
+            PointBuffer curve = series.get(i);
+            assertFalse("Empty", curve.isEmpty());
+            for (int j = 0; j < curve.size(); j++) {
+                if (curve.isBreak(j)) {
+                    continue;
+                }
+
+                float x = curve.getX(j);
+                float y = curve.getY(j);
+                switch (i) {
+                    case 0:
+                        assertEquals("2x", 2 * x, y, 1e-4f);
+                        break;
+                    case 1:
+                        assertEquals("Circle", 2, Math.hypot(x, y), 0.1);
+                        break;
+                    case 2:
+                        assertEquals("-x", -x, y, 1e-4f);
+                        break;
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testGraphSingleListener() {
+        GraphModule graphModule = new Solver().getGraphModule();
+        final List<PointBuffer> results = new ArrayList<>();
+        graphModule.setDomain(-5, 5);
+        graphModule.setRange(-5, 5);
+        graphModule.setResolution(100, 100);
+        graphModule.setExecutor(DIRECT);
+        graphModule.setCallbackExecutor(DIRECT);
+        graphModule.updateGraph("X^2", new GraphModule.OnGraphUpdatedListener() {
+            @Override
+            public void onGraphUpdated(List<Point> result) {
+                fail("Should get the PointBuffer");
+            }
+
+            @Override
+            public void onGraphUpdated(PointBuffer result) {
+                results.add(result);
+            }
+        });
+        assertEquals("Callbacks", 1, results.size());
+
+        // The same series that updateGraphs gives for the first equation
+        PointBuffer expected = graph(new Solver(), Arrays.asList("X^2", "X")).get(0);
+        PointBuffer actual = results.get(0);
+        assertEquals("Size", expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals("Break", expected.isBreak(i), actual.isBreak(i));
+            if (!expected.isBreak(i)) {
+                assertEquals("X", expected.getX(i), actual.getX(i), 0);
+                assertEquals("Y", expected.getY(i), actual.getY(i), 0);
+            }
+        }
+    }
+
+    /**
+     * Graphs the equations between -5 and 5 on the calling thread, and returns one series per
+     * equation.
+     */
+    private static List<PointBuffer> graph(Solver solver, List<String> equations) {
+        GraphModule graphModule = solver.getGraphModule();
+        graphModule.setDomain(-5, 5);
+        graphModule.setRange(-5, 5);
+        graphModule.setResolution(100, 100);
+        graphModule.setExecutor(DIRECT);
+        graphModule.setCallbackExecutor(DIRECT);
+
+        final List<List<PointBuffer>> results = new ArrayList<>();
+        graphModule.updateGraphs(equations, new GraphModule.OnGraphsUpdatedListener() {
+            @Override
+            public void onGraphsUpdated(List<PointBuffer> series) {
+                results.add(series);
+            }
+        });
+        assertEquals("Callbacks", 1, results.size());
+        return results.get(0);
+    }
+
+    @Test
+    public void testPointBuffer() {
+        PointBuffer buffer = new PointBuffer(1);
+        for (int i = 0; i < 100; i++) {
+            buffer.add(i, i * 2);
+        }
+        assertEquals("Size", 100, buffer.size());
+        assertEquals("X", 42f, buffer.getX(42), 0f);
+        assertEquals("Y", 84f, buffer.getY(42), 0f);
+
+        List<Point> points = buffer.asList();
+        assertEquals("List size", 100, points.size());
+        assertEquals("List Y", 198f, points.get(99).getY(), 0f);
+
+        int capacity = buffer.capacity();
+        buffer.clear();
+        assertEquals("Cleared", 0, points.size());
+        assertEquals("Capacity", capacity, buffer.capacity());
+    }
+}
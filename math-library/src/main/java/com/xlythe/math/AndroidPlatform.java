@@ -0,0 +1,51 @@
+package com.xlythe.math;
+
+import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Logs to Logcat, computes graphs one at a time in the background like an AsyncTask, and calls
+ * graph listeners on the main thread.
+ * <p>
+ * Registered in META-INF/services, so the core library finds it on its own.
+ */
+public class AndroidPlatform implements Platform {
+    private final Logger mLogger = new Logger() {
+        @Override
+        public void d(String tag, String message) {
+            android.util.Log.d(tag, message);
+        }
+
+        @Override
+        public void e(String tag, String message, Throwable throwable) {
+            android.util.Log.e(tag, message, throwable);
+        }
+    };
+
+    private final Executor mMainThreadExecutor = new Executor() {
+        private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+        @Override
+        public void execute(Runnable command) {
+            mHandler.post(command);
+        }
+    };
+
+    @Override
+    public Logger getLogger() {
+        return mLogger;
+    }
+
+    @Override
+    public Executor getBackgroundExecutor() {
+        return AsyncTask.SERIAL_EXECUTOR;
+    }
+
+    @Override
+    public Executor getCallbackExecutor() {
+        return mMainThreadExecutor;
+    }
+}
@@ -0,0 +1,39 @@
+package com.xlythe.math;
+
+import android.content.Context;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Keeps files in the app's private files directory.
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public class AndroidStorage implements Storage {
+    private final Context mContext;
+
+    public AndroidStorage(Context context) {
+        mContext = context.getApplicationContext() != null ? context.getApplicationContext() : context;
+    }
+
+    /**
+     * Saves history in the app's files directory, like Persist(Context) did before 2.0.
+     *
+     * @deprecated Use {@code new Persist(new AndroidStorage(context))}.
+     */
+    @Deprecated
+    public static Persist persist(Context context) {
+        return new Persist(new AndroidStorage(context));
+    }
+
+    @Override
+    public InputStream openInput(String name) throws IOException {
+        return mContext.openFileInput(name);
+    }
+
+    @Override
+    public OutputStream openOutput(String name) throws IOException {
+        return mContext.openFileOutput(name, Context.MODE_PRIVATE);
+    }
+}
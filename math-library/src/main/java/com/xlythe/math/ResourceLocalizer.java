@@ -0,0 +1,70 @@
+package com.xlythe.math;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.lang.reflect.Field;
+
+/**
+ * A Localizer that reads its translations from an app's string resources.
+ * <p>
+ * This assumes the app has English translations
+ */
+@SuppressWarnings({"WeakerAccess", "unused", "StatementWithEmptyBody"})
+public class ResourceLocalizer extends Localizer {
+    private static final String TAG = ResourceLocalizer.class.getSimpleName();
+
+    public ResourceLocalizer(Context context, Class r) {
+        buildResourceMap(context, r);
+    }
+
+    /**
+     * Translates the solver's equations with the app's string resources, like
+     * Solver.enableLocalization(Context, Class) did before 2.0.
+     *
+     * @deprecated Use {@code solver.setLocalizer(new ResourceLocalizer(context, r))}.
+     */
+    @Deprecated
+    public static void enableLocalization(Solver solver, Context context, Class r) {
+        solver.setLocalizer(new ResourceLocalizer(context, r));
+    }
+
+    @SuppressWarnings("rawtypes")
+    public void buildResourceMap(Context context, Class r) {
+        try {
+            Log.d("Localizer", "Building resource map");
+            Class color = Class.forName(r.getName() + "$string");
+            for (Field f : color.getFields()) {
+                if (detect(context, f, "asin")) ;
+                else if (detect(context, f, "acos")) ;
+                else if (detect(context, f, "atan")) ;
+                else if (detect(context, f, "sin")) ;
+                else if (detect(context, f, "cos")) ;
+                else if (detect(context, f, "tan")) ;
+                else if (detect(context, f, "log")) ;
+                else if (detect(context, f, "ln")) ;
+                else if (detect(context, f, "det")) ;
+                else if (detect(context, f, "cbrt")) ;
+                else if (f.getName().toLowerCase().contains("dot") || f.getName().toLowerCase().contains("decimal")) {
+                    addTranslation(".", context.getString(f.getInt(null)));
+                } else if (f.getName().toLowerCase().contains("matrix") && f.getName().toLowerCase().contains("separator")) {
+                    addTranslation(",", context.getString(f.getInt(null)));
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            Log.e(TAG, "Should never happen", e);
+        } catch (IllegalAccessException e) {
+            Log.e(TAG, "Should never happen", e);
+        } catch (ClassNotFoundException e) {
+            // Do nothing. Happens if no Strings are found.
+        }
+    }
+
+    private boolean detect(Context context, Field f, String phrase) throws IllegalAccessException {
+        if (f.getName().toLowerCase().contains(phrase)) {
+            addTranslation(phrase, context.getString(f.getInt(null)));
+            return true;
+        }
+        return false;
+    }
+}